@@ -41,7 +41,7 @@ public class CommandLine {
         return targetFiles;
     }
 
-    private static final int OPTS_LEN = 13;
+    private static final int OPTS_LEN = 14;
     /**
      * Parse command line and set preferences.
      *
@@ -69,8 +69,9 @@ public class CommandLine {
         longOpts[10] = new LongOpt("size", LongOpt.REQUIRED_ARGUMENT, sizeVal, 'e');
         longOpts[11] = new LongOpt("fast", LongOpt.NO_ARGUMENT, null, '1');
         longOpts[12] = new LongOpt("best", LongOpt.NO_ARGUMENT, null, '9');
+        longOpts[13] = new LongOpt("crc", LongOpt.NO_ARGUMENT, null, 'C');
         assert (longOpts.length == OPTS_LEN);
-        Getopt g = new Getopt("dictzip", argv, "cdfhklLe:E:s:S:tvVD:p:P:169", longOpts);
+        Getopt g = new Getopt("dictzip", argv, "cCdfhklLe:E:s:S:tvVD:p:P:169", longOpts);
         g.setOpterr(false); // We'll do our own error handling
         //
         while ((c = g.getopt()) != -1) {
@@ -103,6 +104,9 @@ public class CommandLine {
                 case 'c':
                     options.setStdout(true);
                     break;
+                case 'C':
+                    options.setCrc(true);
+                    break;
                 case 'd':
                     options.setDecompress(true);
                     break;
@@ -11,14 +11,17 @@ package org.dict.zip.cli;
 import org.dict.zip.DictZipHeader.CompressionLevel;
 import org.dict.zip.DictZipInputStream;
 import org.dict.zip.DictZipOutputStream;
+import org.dict.zip.DictZipReader;
 import org.dict.zip.RandomAccessInputStream;
 import org.dict.zip.RandomAccessOutputStream;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.text.Format;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -144,42 +147,53 @@ public class DictData {
     /**
      * Do uncompression.
      * @param start start offset of data
-     * @param size size to retrieve
+     * @param size size to retrieve, 0 to retrieve until end of data
      * @throws IOException if file I/O error.
      */
     public void doUnzip(final long start, final int size) throws IOException {
-        try (DictZipInputStream din = new DictZipInputStream(new RandomAccessInputStream(new
-                        RandomAccessFile(compressedFileName.toFile(), "r")));
-                OutputStream unzipOut = new RandomAccessOutputStream(originalFileName.toAbsolutePath().toString(), "rw")) {
+        try (DictZipReader reader = new DictZipReader(compressedFileName);
+             FileChannel unzipOut = FileChannel.open(originalFileName.toAbsolutePath(),
+                     StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long count = size == 0 ? Long.MAX_VALUE : size;
+            reader.transferTo(start, count, unzipOut);
+        }
+    }
+
+    /**
+     * Do uncompression from a non-seekable stream, such as standard input.
+     * <p>
+     *     Length in gzip trailer is verified at end of data. CRC is not verified,
+     *     because files written by releases up to 0.13.0 have a wrong CRC.
+     * </p>
+     * @param in dictzip data to read.
+     * @param out stream to write uncompressed data.
+     * @throws IOException if I/O error, or data is corrupt.
+     */
+    public static void doUnzip(final InputStream in, final OutputStream out) throws IOException {
+        doUnzip(in, out, DictZipInputStream.IntegrityCheck.NONE);
+    }
+
+    /**
+     * Do uncompression from a non-seekable stream with the integrity check mode.
+     * <p>
+     *     Length in gzip trailer is verified at end of data, and CRC too with STREAM.
+     * </p>
+     * @param in dictzip data to read.
+     * @param out stream to write uncompressed data.
+     * @param check integrity check mode.
+     * @throws IOException if I/O error, or data is corrupt.
+     */
+    public static void doUnzip(final InputStream in, final OutputStream out,
+                               final DictZipInputStream.IntegrityCheck check) throws IOException {
+        try (DictZipInputStream din = new DictZipInputStream(in, BUF_LEN)) {
+            din.setIntegrityCheck(check);
             byte[] buf = new byte[BUF_LEN];
-            din.seek(start);
-            if (size == 0) {
-                int len;
-                while ((len = din.read(buf, 0, BUF_LEN)) > 0) {
-                    unzipOut.write(buf, 0, len);
-                }
-            } else {
-                try {
-                    int len;
-                    int readSize = 0;
-                    while (size - readSize > 0) {
-                        if (size - readSize < BUF_LEN) {
-                            len = din.read(buf, 0, size - readSize);
-                        } else {
-                            len = din.read(buf, 0, BUF_LEN);
-                        }
-                        if (len > 0) {
-                            unzipOut.write(buf, 0, len);
-                            readSize += len;
-                        } else {
-                            break;
-                        }
-                    }
-                } catch (EOFException eof) {
-                    // ignore it.
-                }
+            int len;
+            while ((len = din.read(buf, 0, BUF_LEN)) > 0) {
+                out.write(buf, 0, len);
             }
         }
+        out.flush();
     }
 
 }
@@ -10,6 +10,7 @@ package org.dict.zip.cli;
 
 import org.dict.zip.DictZipFiles;
 import org.dict.zip.DictZipHeader.CompressionLevel;
+import org.dict.zip.DictZipInputStream.IntegrityCheck;
 
 import java.io.File;
 import java.util.Locale;
@@ -43,6 +44,17 @@ public final class Main {
             // normal exit.
             System.exit(0);
         }
+        if (commandLine.options.isDecompress() && commandLine.getTargetFiles().isEmpty()) {
+            // decompress standard input to standard output.
+            try {
+                DictData.doUnzip(System.in, System.out, integrityCheck());
+            } catch (IOException ex) {
+                System.err.println(messages.getString("main.io.error"));
+                System.err.println(ex.getLocalizedMessage());
+                System.exit(1);
+            }
+            System.exit(0);
+        }
         for (String fName: commandLine.getTargetFiles()) {
             try {
                 DictData dict;
@@ -53,7 +65,7 @@ public final class Main {
                 } else if (commandLine.options.isTest()) {
                     boolean result = false;
                     try {
-                        result = DictZipFiles.checkDictZipFile(fName);
+                        result = DictZipFiles.checkDictZipFile(fName, integrityCheck());
                     } catch (IOException e) {
                         System.err.println(e.getMessage());
                         System.exit(2);
@@ -92,6 +104,14 @@ public final class Main {
         System.exit(0);
     }
 
+    /**
+     * Integrity check mode from -C/--crc option.
+     * Files written by releases up to 0.13.0 have a wrong CRC, so it is off by default.
+     */
+    private static IntegrityCheck integrityCheck() {
+        return commandLine.options.isCrc() ? IntegrityCheck.STREAM : IntegrityCheck.NONE;
+    }
+
     private Main() {
     }
 
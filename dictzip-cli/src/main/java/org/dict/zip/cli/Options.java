@@ -22,6 +22,7 @@ public class Options {
     private boolean list = false;
     private boolean stdout = false;
     private boolean test = false;
+    private boolean crc = false;
     private boolean verbose = false;
     private boolean debugVerbose = false;
     private long start = 0;
@@ -125,6 +126,22 @@ public class Options {
         this.test = test;
     }
 
+    /**
+     * Whether -C/--crc option specified.
+     * @return true if -C specified.
+     */
+    boolean isCrc() {
+        return crc;
+    }
+
+    /**
+     * Set -C option.
+     * @param crc true if -C specified.
+     */
+    void setCrc(final boolean crc) {
+        this.crc = crc;
+    }
+
     /**
      * Whether -v/--verbose option specified.
      * @return true if -v specified.
@@ -21,9 +21,14 @@
 package org.dict.zip.cli;
 
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Objects;
 
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -88,4 +93,19 @@ public class DictDataTest {
         assertTrue(contentEquals(decompressed.toFile(), new File(expected)));
     }
 
+    /**
+     * Test of doUnzip method from non-seekable stream, of class DictData.
+     * @throws java.lang.Exception if file operation failed.
+     */
+    @Test
+    public void testDoUnzipStream() throws Exception {
+        String dzFile = this.getClass().getResource("/test.dict.dz").getFile();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new FileInputStream(dzFile)) {
+            DictData.doUnzip(in, out);
+        }
+        String expected = this.getClass().getResource("/test.dict.expected").getFile();
+        assertTrue(Arrays.equals(Files.readAllBytes(Paths.get(expected)), out.toByteArray()));
+    }
+
 }
@@ -0,0 +1,63 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Storage on byte array.
+ * @author Hiroshi Miura
+ */
+public class ByteArrayStorage implements DictZipStorage {
+
+    private final byte[] array;
+    private final int offset;
+    private final int length;
+
+    /**
+     * Constructor.
+     * @param array byte array holds dictzip data, it is not copied.
+     */
+    public ByteArrayStorage(final byte[] array) {
+        this(array, 0, array.length);
+    }
+
+    /**
+     * Constructor with a range of array.
+     * @param array byte array holds dictzip data, it is not copied.
+     * @param offset start of data.
+     * @param length length of data.
+     */
+    public ByteArrayStorage(final byte[] array, final int offset, final int length) {
+        if (offset < 0 || length < 0 || offset > array.length - length) {
+            throw new IndexOutOfBoundsException();
+        }
+        this.array = array;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public long size() {
+        return length;
+    }
+
+    @Override
+    public int read(final long position, final ByteBuffer dst) {
+        if (position >= length) {
+            return -1;
+        }
+        int n = (int) Math.min(dst.remaining(), length - position);
+        dst.put(array, offset + (int) position, n);
+        return n;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Storage on ByteBuffer, such as direct buffer allocated off heap.
+ * @author Hiroshi Miura
+ */
+public class ByteBufferStorage implements DictZipStorage {
+
+    private final ByteBuffer buffer;
+
+    /**
+     * Constructor.
+     * <p>
+     *     Data between position and limit of the buffer is used.
+     *     The buffer is shared, and its position and limit are not changed.
+     * </p>
+     * @param buffer buffer holds dictzip data.
+     */
+    public ByteBufferStorage(final ByteBuffer buffer) {
+        this.buffer = buffer.slice();
+    }
+
+    @Override
+    public long size() {
+        return buffer.capacity();
+    }
+
+    @Override
+    public int read(final long position, final ByteBuffer dst) {
+        if (position >= buffer.capacity()) {
+            return -1;
+        }
+        ByteBuffer src = buffer.duplicate();
+        src.position((int) position);
+        int n = Math.min(dst.remaining(), src.remaining());
+        src.limit(src.position() + n);
+        dst.put(src);
+        return n;
+    }
+
+    @Override
+    public void close() {
+    }
+}
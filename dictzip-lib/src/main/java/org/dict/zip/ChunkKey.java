@@ -0,0 +1,48 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+/**
+ * Key of a chunk in chunk caches.
+ * @author Hiroshi Miura
+ */
+final class ChunkKey {
+    private final long fileId;
+    private final int index;
+
+    ChunkKey(final long fileId, final int index) {
+        this.fileId = fileId;
+        this.index = index;
+    }
+
+    long getFileId() {
+        return fileId;
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ChunkKey)) {
+            return false;
+        }
+        ChunkKey other = (ChunkKey) o;
+        return fileId == other.fileId && index == other.index;
+    }
+
+    @Override
+    public int hashCode() {
+        long h = fileId * 0x9e3779b97f4a7c15L + index;
+        return (int) (h ^ (h >>> 32)) * 0x85ebca6b;
+    }
+}
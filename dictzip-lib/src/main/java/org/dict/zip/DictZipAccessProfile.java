@@ -0,0 +1,118 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Snapshot of hot chunks, pairs of file id and chunk index in order of access frequency.
+ * <p>
+ *     A profile is taken by {@link RecordingChunkCache#snapshot(int)}, stored in a file,
+ *     and replayed by {@link DictZipWarmUp} at startup.
+ * </p>
+ * @author Hiroshi Miura
+ */
+public final class DictZipAccessProfile {
+
+    private static final int MAGIC = 0x445a4150;  // "DZAP"
+    private static final int VERSION = 1;
+
+    private final long[] fileIds;
+    private final int[] indexes;
+
+    DictZipAccessProfile(final long[] fileIds, final int[] indexes) {
+        this.fileIds = fileIds;
+        this.indexes = indexes;
+    }
+
+    /**
+     * Read profile from file.
+     * @param path profile file.
+     * @return profile object.
+     * @throws IOException if an I/O error has occurred or file is not a profile.
+     */
+    public static DictZipAccessProfile read(final Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readUnsignedShort() != VERSION) {
+                throw new IOException("Not a dictzip access profile.");
+            }
+            int count = in.readInt();
+            if (count < 0) {
+                throw new IOException("Corrupt dictzip access profile.");
+            }
+            long[] fileIds = new long[count];
+            int[] indexes = new int[count];
+            for (int i = 0; i < count; i++) {
+                fileIds[i] = in.readLong();
+                indexes[i] = in.readInt();
+            }
+            return new DictZipAccessProfile(fileIds, indexes);
+        }
+    }
+
+    /**
+     * Write profile to file.
+     * <p>
+     *     Profile is written to a temporary file and moved to the path,
+     *     so a crash while writing does not break the last profile.
+     * </p>
+     * @param path profile file.
+     * @throws IOException if an I/O error has occurred.
+     */
+    public void write(final Path path) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(fileIds.length);
+            for (int i = 0; i < fileIds.length; i++) {
+                out.writeLong(fileIds[i]);
+                out.writeInt(indexes[i]);
+            }
+        }
+        try {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Get number of entries.
+     * @return number of chunks in profile.
+     */
+    public int size() {
+        return fileIds.length;
+    }
+
+    /**
+     * Get file id of an entry.
+     * @param n entry number, hotter entry comes first.
+     * @return file id.
+     */
+    public long getFileId(final int n) {
+        return fileIds[n];
+    }
+
+    /**
+     * Get chunk index of an entry.
+     * @param n entry number, hotter entry comes first.
+     * @return chunk index.
+     */
+    public int getIndex(final int n) {
+        return indexes[n];
+    }
+}
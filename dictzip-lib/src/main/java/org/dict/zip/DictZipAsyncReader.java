@@ -0,0 +1,361 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Asynchronous reader of dictzip file.
+ * <p>
+ *     Compressed data of chunks in a requested range is fetched with AsynchronousFileChannel,
+ *     without blocking the caller, and decoded on the executor. Chunk cache of the reader is
+ *     looked up on the executor too, and chunks found in it are not fetched; each run of
+ *     missing chunks is fetched at once.
+ *     A returned future can be cancelled; then no more read or decode of the request is started.
+ *     Chunks being decoded by other reads, synchronous or asynchronous, are not decoded again
+ *     but copied when that decode completes.
+ * </p>
+ * @author Hiroshi Miura
+ */
+public final class DictZipAsyncReader implements Closeable {
+
+    private final AsynchronousFileChannel channel;
+    private final DictZipReader reader;
+    private final Executor executor;
+
+    private DictZipAsyncReader(final AsynchronousFileChannel channel, final Executor executor) throws IOException {
+        this.channel = channel;
+        this.executor = executor;
+        reader = new DictZipReader(new AsyncChannelStorage(channel));
+    }
+
+    /**
+     * Open dictzip file and decode on common fork join pool.
+     * @param path dictzip file.
+     * @return reader object.
+     * @throws IOException if an I/O error has occurred.
+     */
+    public static DictZipAsyncReader open(final Path path) throws IOException {
+        return open(path, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Open dictzip file.
+     * @param path dictzip file.
+     * @param executor executor to decode chunks.
+     * @return reader object.
+     * @throws IOException if an I/O error has occurred.
+     */
+    public static DictZipAsyncReader open(final Path path, final Executor executor) throws IOException {
+        AsynchronousFileChannel channel = AsynchronousFileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new DictZipAsyncReader(channel, executor);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Get positional reader of the same file.
+     * <p>
+     *     Chunk cache set on it is used by asynchronous reads.
+     * </p>
+     * @return reader object.
+     */
+    public DictZipReader getReader() {
+        return reader;
+    }
+
+    /**
+     * Read uncompressed data asynchronously.
+     * @param position uncompressed position to start.
+     * @param length number of bytes to read.
+     * @return future of buffer holds data, which is shorter than length at end of data.
+     *     It fails with IllegalArgumentException when the range is out of boundary or too large.
+     */
+    public CompletableFuture<ByteBuffer> readAsync(final long position, final int length) {
+        CompletableFuture<ByteBuffer> result = new CompletableFuture<>();
+        if (position < 0 || length < 0) {
+            result.completeExceptionally(new IllegalArgumentException("Index is out of boundary."));
+            return result;
+        }
+        if (!channel.isOpen()) {
+            result.completeExceptionally(new IOException("Already closed!"));
+            return result;
+        }
+        long total = reader.getLength();
+        if (position >= total || length == 0) {
+            result.complete(ByteBuffer.allocate(0));
+            return result;
+        }
+        long end = Math.min(total, position + length);
+        int chunkLength = reader.getHeader().getChunkLength();
+        int first = (int) (position / chunkLength);
+        int count = (int) ((end - 1) / chunkLength) - first + 1;
+        long decodedStart = reader.getChunkStart(first);
+        long decodedLength = reader.getChunkStart(first + count - 1) + reader.getChunkDataLength(first + count - 1)
+                - decodedStart;
+        if (decodedLength > Integer.MAX_VALUE) {
+            result.completeExceptionally(new IllegalArgumentException("length is too large."));
+            return result;
+        }
+        // decode chunks into one array, and return a view of requested range.
+        byte[] data = new byte[(int) decodedLength];
+        byte[][] outputs = new byte[count][];
+        Arrays.fill(outputs, data);
+        int[] offsets = new int[count];
+        for (int i = 0; i < count; i++) {
+            offsets[i] = (int) (reader.getChunkStart(first + i) - decodedStart);
+        }
+        ByteBuffer view = ByteBuffer.wrap(data, (int) (position - decodedStart), (int) (end - position)).slice();
+        // cache lookup can block on page faults of mapped caches, so plan on the executor.
+        try {
+            executor.execute(() -> {
+                if (result.isDone()) {
+                    return;
+                }
+                DictZipReader.Flight[] flights = new DictZipReader.Flight[count];
+                try {
+                    plan(result, view, first, count, data, outputs, offsets, flights);
+                } catch (RuntimeException e) {
+                    reader.abortFlights(first, 0, count, flights);
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * Plan runs of chunks missing in cache, as DictZipReader.decodeChunks does, and start them.
+     */
+    private void plan(final CompletableFuture<ByteBuffer> result, final ByteBuffer view, final int first,
+                      final int count, final byte[] data, final byte[][] outputs, final int[] offsets,
+                      final DictZipReader.Flight[] flights) {
+        List<CompletableFuture<Void>> stages = new ArrayList<>();
+        int i = 0;
+        while (i < count) {
+            if (isCached(first + i, data, offsets[i])) {
+                i++;
+                continue;
+            }
+            DictZipReader.Flight flight = new DictZipReader.Flight();
+            DictZipReader.Flight current = reader.enterFlight(first + i, flight);
+            if (current != flight) {
+                stages.add(join(result, current, first, i, outputs, offsets));
+                i++;
+                continue;
+            }
+            flights[i] = flight;
+            long start = reader.getHeader().getChunkOffset(first + i);
+            int runEnd = i + 1;
+            boolean hit = false;
+            while (runEnd < count && reader.chunkEnd(first + runEnd) - start <= DictZipReader.MAX_SPAN) {
+                hit = isCached(first + runEnd, data, offsets[runEnd]);
+                if (hit) {
+                    break;
+                }
+                flights[runEnd] = reader.startFlight(first + runEnd);
+                if (flights[runEnd] == null) {
+                    break;
+                }
+                runEnd++;
+            }
+            stages.add(decodeRun(result, first, i, runEnd, outputs, offsets, flights));
+            i = hit ? runEnd + 1 : runEnd;
+        }
+        CompletableFuture.allOf(stages.toArray(new CompletableFuture<?>[0])).whenComplete((v, t) -> {
+            if (t == null) {
+                result.complete(view);
+            }
+        });
+    }
+
+    /**
+     * Submit a batch of reads.
+     * @param positions uncompressed positions to start.
+     * @param lengths numbers of bytes to read.
+     * @return list of futures in order of positions.
+     */
+    public List<CompletableFuture<ByteBuffer>> readAsync(final long[] positions, final int[] lengths) {
+        if (positions.length != lengths.length) {
+            throw new IllegalArgumentException("positions and lengths should have same length.");
+        }
+        List<CompletableFuture<ByteBuffer>> results = new ArrayList<>(positions.length);
+        for (int i = 0; i < positions.length; i++) {
+            results.add(readAsync(positions[i], lengths[i]));
+        }
+        return Collections.unmodifiableList(results);
+    }
+
+    /**
+     * Close the file. Pending reads complete exceptionally.
+     * @throws IOException if an I/O error has occurred.
+     */
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private boolean isCached(final int index, final byte[] data, final int offset) {
+        DictZipChunkCache cache = reader.getChunkCache();
+        return cache != null && cache.get(reader.getFileId(), index,
+                ByteBuffer.wrap(data, offset, reader.getChunkDataLength(index)));
+    }
+
+    /**
+     * Copy the chunk decoded by other thread, or decode it when that decode failed.
+     */
+    private CompletableFuture<Void> join(final CompletableFuture<ByteBuffer> result, final DictZipReader.Flight flight,
+                                         final int first, final int k, final byte[][] outputs, final int[] offsets) {
+        return flight.getResult().thenCompose(decoded -> {
+            if (decoded == null) {
+                return decodeRun(result, first, k, k + 1, outputs, offsets, null);
+            }
+            System.arraycopy(decoded, 0, outputs[k], offsets[k], reader.getChunkDataLength(first + k));
+            return CompletableFuture.<Void>completedFuture(null);
+        });
+    }
+
+    /**
+     * Fetch compressed data of a run of chunks, and decode it on the executor.
+     * Flights of the run are finished in any case, and an error fails the result.
+     */
+    private CompletableFuture<Void> decodeRun(final CompletableFuture<ByteBuffer> result, final int first,
+                                              final int from, final int to, final byte[][] outputs,
+                                              final int[] offsets, final DictZipReader.Flight[] flights) {
+        long start = reader.getHeader().getChunkOffset(first + from);
+        long length = reader.chunkEnd(first + to - 1) - start;
+        CompletableFuture<Void> stage;
+        if (length < 0) {
+            stage = new CompletableFuture<>();
+            stage.completeExceptionally(new ZipException("Corrupt dictzip header."));
+        } else {
+            stage = fetch(ByteBuffer.allocate((int) length), start, result).thenAcceptAsync(span -> {
+                if (result.isDone()) {
+                    return;
+                }
+                Inflater inflater = new Inflater(true);
+                try {
+                    reader.decodeSpan(span, first, from, to, inflater, outputs, offsets, flights);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                } finally {
+                    inflater.end();
+                }
+            }, executor);
+        }
+        return stage.whenComplete((v, t) -> {
+            reader.abortFlights(first, from, to, flights);
+            if (t != null) {
+                result.completeExceptionally(t instanceof CompletionException && t.getCause() != null
+                        ? t.getCause() : t);
+            }
+        });
+    }
+
+    /**
+     * Fill the buffer from the position, unless the result is done.
+     * @return future of the filled buffer, flipped.
+     */
+    private CompletableFuture<ByteBuffer> fetch(final ByteBuffer dst, final long position,
+                                                final CompletableFuture<ByteBuffer> result) {
+        CompletableFuture<ByteBuffer> future = new CompletableFuture<>();
+        fetch(dst, position, result, future);
+        return future;
+    }
+
+    private void fetch(final ByteBuffer dst, final long position, final CompletableFuture<ByteBuffer> result,
+                       final CompletableFuture<ByteBuffer> future) {
+        if (result.isDone()) {
+            future.cancel(false);
+            return;
+        }
+        try {
+            channel.read(dst, position, null, new CompletionHandler<Integer, Void>() {
+                @Override
+                public void completed(final Integer n, final Void attachment) {
+                    if (n < 0) {
+                        future.completeExceptionally(new EOFException("Unexpected end of dictzip file."));
+                    } else if (dst.hasRemaining()) {
+                        fetch(dst, position + n, result, future);
+                    } else {
+                        dst.flip();
+                        future.complete(dst);
+                    }
+                }
+
+                @Override
+                public void failed(final Throwable t, final Void attachment) {
+                    future.completeExceptionally(t);
+                }
+            });
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Blocking storage on the asynchronous channel, to read header and trailer.
+     */
+    private static final class AsyncChannelStorage implements DictZipStorage {
+        private final AsynchronousFileChannel channel;
+
+        private AsyncChannelStorage(final AsynchronousFileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return channel.size();
+        }
+
+        @Override
+        public int read(final long position, final ByteBuffer dst) throws IOException {
+            try {
+                return channel.read(dst, position).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while reading.");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new IOException(cause);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
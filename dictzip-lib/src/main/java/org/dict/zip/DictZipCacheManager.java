@@ -0,0 +1,357 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chunk cache with one byte budget shared by all readers of a process.
+ * <p>
+ *     Chunks are held in LRU order, and admitted with TinyLFU policy: when a new chunk
+ *     needs eviction, it is admitted only if its estimated access frequency is higher than
+ *     all victims. Chunks read once by a full scan are not admitted over popular chunks,
+ *     so scans cannot flush the hot set. Access frequency is estimated by a count-min
+ *     sketch which ages periodically. Hit rate and occupancy are counted per file.
+ *     A large budget is split into up to 16 segments selected by hash of file id and chunk
+ *     index, each with its own lock, LRU order and sketch, and chunk data is copied
+ *     outside of the lock.
+ * </p>
+ * @author Hiroshi Miura
+ */
+public final class DictZipCacheManager implements DictZipChunkCache {
+
+    private static final int EXPECTED_CHUNK_SIZE = 58315;
+    private static final int MAX_SEGMENTS = 16;
+    private static final long MIN_SEGMENT_BUDGET = 64L * EXPECTED_CHUNK_SIZE;
+
+    private final long budget;
+    private final Segment[] segments;
+
+    /**
+     * Constructor.
+     * @param budget maximum bytes of cached chunks.
+     */
+    public DictZipCacheManager(final long budget) {
+        if (budget <= 0) {
+            throw new IllegalArgumentException("budget should be positive number.");
+        }
+        this.budget = budget;
+        int count = Integer.highestOneBit((int) Math.max(1, Math.min(MAX_SEGMENTS, budget / MIN_SEGMENT_BUDGET)));
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(i == 0 ? budget - budget / count * (count - 1) : budget / count);
+        }
+    }
+
+    @Override
+    public boolean get(final long fileId, final int index, final ByteBuffer dst) {
+        ChunkKey key = new ChunkKey(fileId, index);
+        long hash = hash(key);
+        Segment segment = segmentOf(hash);
+        byte[] data;
+        synchronized (segment) {
+            segment.sketch.increment(hash);
+            data = segment.chunks.get(key);
+            Counter counter = segment.counter(fileId);
+            if (data == null) {
+                counter.misses++;
+                return false;
+            }
+            counter.hits++;
+        }
+        // cached arrays are never modified, so copy without lock.
+        dst.put(data);
+        return true;
+    }
+
+    @Override
+    public void put(final long fileId, final int index, final ByteBuffer data) {
+        int length = data.remaining();
+        ChunkKey key = new ChunkKey(fileId, index);
+        long hash = hash(key);
+        Segment segment = segmentOf(hash);
+        if (length > segment.budget) {
+            return;
+        }
+        synchronized (segment) {
+            if (segment.chunks.containsKey(key)) {
+                return;
+            }
+        }
+        byte[] copy = new byte[length];
+        data.duplicate().get(copy);
+        synchronized (segment) {
+            // other threads may have put the chunk while copying.
+            if (segment.chunks.containsKey(key)) {
+                return;
+            }
+            if (segment.usedBytes + length > segment.budget && !segment.evictFor(hash, length)) {
+                segment.rejectCount++;
+                return;
+            }
+            segment.chunks.put(key, copy);
+            segment.usedBytes += length;
+            Counter counter = segment.counter(fileId);
+            counter.chunks++;
+            counter.bytes += length;
+        }
+    }
+
+    /**
+     * Remove all chunks of the file.
+     * @param fileId file id.
+     */
+    public void invalidate(final long fileId) {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                Iterator<Map.Entry<ChunkKey, byte[]>> it = segment.chunks.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<ChunkKey, byte[]> e = it.next();
+                    if (e.getKey().getFileId() == fileId) {
+                        it.remove();
+                        segment.usedBytes -= e.getValue().length;
+                    }
+                }
+                segment.counters.remove(fileId);
+            }
+        }
+    }
+
+    /**
+     * Get byte budget.
+     * @return maximum bytes of cached chunks.
+     */
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * Get bytes of cached chunks.
+     * @return used bytes.
+     */
+    public long getUsedBytes() {
+        long total = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                total += segment.usedBytes;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Get number of chunks rejected by admission policy.
+     * @return reject count.
+     */
+    public long getRejectCount() {
+        long total = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                total += segment.rejectCount;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Get statistics of a file.
+     * @param fileId file id.
+     * @return statistics snapshot.
+     */
+    public FileStats getStats(final long fileId) {
+        Counter total = new Counter();
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                Counter c = segment.counters.get(fileId);
+                if (c != null) {
+                    total.add(c);
+                }
+            }
+        }
+        return total.snapshot(fileId);
+    }
+
+    /**
+     * Get statistics of all files which accessed the cache.
+     * @return list of statistics snapshot.
+     */
+    public List<FileStats> getAllStats() {
+        Map<Long, Counter> totals = new HashMap<>();
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                for (Map.Entry<Long, Counter> e : segment.counters.entrySet()) {
+                    totals.computeIfAbsent(e.getKey(), k -> new Counter()).add(e.getValue());
+                }
+            }
+        }
+        List<FileStats> result = new ArrayList<>(totals.size());
+        for (Map.Entry<Long, Counter> e : totals.entrySet()) {
+            result.add(e.getValue().snapshot(e.getKey()));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    private Segment segmentOf(final long hash) {
+        return segments[(int) (hash ^ (hash >>> 32)) & (segments.length - 1)];
+    }
+
+    private static long hash(final ChunkKey key) {
+        return key.getFileId() * 0x9e3779b97f4a7c15L + key.getIndex();
+    }
+
+    /**
+     * Segment of the cache, guarded by its own lock.
+     */
+    private static final class Segment {
+        private final long budget;
+        private final LinkedHashMap<ChunkKey, byte[]> chunks = new LinkedHashMap<>(16, 0.75f, true);
+        private final Map<Long, Counter> counters = new HashMap<>();
+        private final FrequencySketch sketch;
+        private long usedBytes = 0;
+        private long rejectCount = 0;
+
+        Segment(final long budget) {
+            this.budget = budget;
+            sketch = new FrequencySketch((int) Math.min(Integer.MAX_VALUE, budget / EXPECTED_CHUNK_SIZE + 1));
+        }
+
+        /**
+         * Evict least recently used chunks for the candidate when it is more popular than them.
+         */
+        private boolean evictFor(final long candidate, final int length) {
+            int frequency = sketch.frequency(candidate);
+            List<ChunkKey> victims = new ArrayList<>();
+            long freed = 0;
+            Iterator<Map.Entry<ChunkKey, byte[]>> it = chunks.entrySet().iterator();
+            while (usedBytes - freed + length > budget && it.hasNext()) {
+                Map.Entry<ChunkKey, byte[]> e = it.next();
+                if (sketch.frequency(hash(e.getKey())) >= frequency) {
+                    return false;
+                }
+                victims.add(e.getKey());
+                freed += e.getValue().length;
+            }
+            for (ChunkKey victim : victims) {
+                byte[] data = chunks.remove(victim);
+                usedBytes -= data.length;
+                Counter counter = counters.get(victim.getFileId());
+                if (counter != null) {
+                    counter.chunks--;
+                    counter.bytes -= data.length;
+                }
+            }
+            return true;
+        }
+
+        private Counter counter(final long fileId) {
+            Counter counter = counters.get(fileId);
+            if (counter == null) {
+                counter = new Counter();
+                counters.put(fileId, counter);
+            }
+            return counter;
+        }
+    }
+
+    /**
+     * Mutable counter of a file.
+     */
+    private static final class Counter {
+        private long hits;
+        private long misses;
+        private int chunks;
+        private long bytes;
+
+        private void add(final Counter other) {
+            hits += other.hits;
+            misses += other.misses;
+            chunks += other.chunks;
+            bytes += other.bytes;
+        }
+
+        private FileStats snapshot(final long fileId) {
+            return new FileStats(fileId, hits, misses, chunks, bytes);
+        }
+    }
+
+    /**
+     * Cache statistics of a file.
+     */
+    public static final class FileStats {
+        private final long fileId;
+        private final long hitCount;
+        private final long missCount;
+        private final int chunkCount;
+        private final long occupancy;
+
+        FileStats(final long fileId, final long hitCount, final long missCount, final int chunkCount,
+                  final long occupancy) {
+            this.fileId = fileId;
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.chunkCount = chunkCount;
+            this.occupancy = occupancy;
+        }
+
+        /**
+         * Get file id.
+         * @return file id.
+         */
+        public long getFileId() {
+            return fileId;
+        }
+
+        /**
+         * Get number of hits.
+         * @return hit count.
+         */
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        /**
+         * Get number of misses.
+         * @return miss count.
+         */
+        public long getMissCount() {
+            return missCount;
+        }
+
+        /**
+         * Get hit rate.
+         * @return ratio of hits to lookups, or 0 when no lookup.
+         */
+        public double getHitRate() {
+            long total = hitCount + missCount;
+            return total == 0 ? 0 : (double) hitCount / total;
+        }
+
+        /**
+         * Get number of cached chunks.
+         * @return chunk count.
+         */
+        public int getChunkCount() {
+            return chunkCount;
+        }
+
+        /**
+         * Get bytes of cached chunks.
+         * @return occupancy in bytes.
+         */
+        public long getOccupancy() {
+            return occupancy;
+        }
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Persistent catalog of parsed dictzip headers.
+ * <p>
+ *     The catalog stores chunk offsets, chunk CRC table, CRC and length in trailer
+ *     of many dictzip files in one file. It is memory mapped on open, so readers
+ *     opened through the catalog share offset tables off heap, even across processes,
+ *     and do not read header nor trailer of dictzip files.
+ *     Each entry is validated with size and modification time of the file, and
+ *     a file which is not in catalog or changed is opened in ordinary way.
+ * </p>
+ * @author Hiroshi Miura
+ */
+public final class DictZipCatalog {
+
+    private static final int MAGIC = 0x445a4354;  // "DZCT"
+    private static final int VERSION = 1;
+    private static final int ALIGN = 8;
+
+    private final ByteBuffer buffer;
+    private final Map<String, Entry> entries;
+
+    private DictZipCatalog(final ByteBuffer buffer, final Map<String, Entry> entries) {
+        this.buffer = buffer;
+        this.entries = entries;
+    }
+
+    /**
+     * Build catalog file of dictzip files.
+     * <p>
+     *     Catalog is written to a temporary file and moved to the path,
+     *     so processes which already mapped old catalog are not affected.
+     * </p>
+     * @param catalog path of catalog file.
+     * @param files dictzip files.
+     * @throws IOException if an I/O error has occurred or a file is not dictzip.
+     */
+    public static void build(final Path catalog, final Collection<Path> files) throws IOException {
+        Path tmp = catalog.resolveSibling(catalog.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(files.size());
+            pad(out);
+            ByteBuffer directory = ByteBuffer.allocate(1024);
+            for (Path file : files) {
+                BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                try (DictZipReader reader = new DictZipReader(file)) {
+                    DictZipHeader header = reader.getHeader();
+                    int count = header.getChunkCount();
+                    long tableOffset = out.size();
+                    for (int i = 0; i < count; i++) {
+                        out.writeLong(header.getChunkOffset(i));
+                    }
+                    out.writeLong(count == 0 ? header.getHeaderLength()
+                            : header.getChunkOffset(count - 1) + header.getChunkSize(count - 1));
+                    if (header.hasChunkCRC()) {
+                        for (int i = 0; i < count; i++) {
+                            out.writeInt((int) header.getChunkCRC(i));
+                        }
+                    }
+                    pad(out);
+                    if (out.size() == Integer.MAX_VALUE) {
+                        throw new IOException("Catalog is too large.");
+                    }
+                    byte[] name = key(file).getBytes(StandardCharsets.UTF_8);
+                    directory = ensureCapacity(directory, name.length + 64);
+                    directory.putInt(name.length);
+                    directory.put(name);
+                    directory.putLong(attrs.size());
+                    directory.putLong(attrs.lastModifiedTime().toMillis());
+                    directory.putInt(header.getHeaderLength());
+                    directory.putInt(header.getChunkLength());
+                    directory.putInt(count);
+                    directory.put((byte) header.getExtraFlag().ordinal());
+                    directory.put((byte) header.getHeaderOS().ordinal());
+                    directory.putLong(header.getMtime());
+                    directory.putInt((int) reader.getCrc());
+                    directory.putInt((int) reader.getLength());
+                    directory.put((byte) (header.hasChunkCRC() ? 1 : 0));
+                    directory.putLong(tableOffset);
+                }
+            }
+            long directoryOffset = out.size();
+            out.write(directory.array(), 0, directory.position());
+            out.writeLong(directoryOffset);
+            if (out.size() == Integer.MAX_VALUE) {
+                throw new IOException("Catalog is too large.");
+            }
+        }
+        try {
+            Files.move(tmp, catalog, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, catalog, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Open catalog file with memory mapping.
+     * @param catalog path of catalog file.
+     * @return catalog object.
+     * @throws IOException if an I/O error has occurred or file is not a catalog.
+     */
+    public static DictZipCatalog open(final Path catalog) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(catalog, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.capacity() < 2 * ALIGN || buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION) {
+            throw new IOException("Not a dictzip catalog.");
+        }
+        int size = buffer.getInt(6);
+        long directoryOffset = buffer.getLong(buffer.capacity() - 8);
+        if (directoryOffset < 0 || directoryOffset > buffer.capacity() - 8) {
+            throw new IOException("Corrupt dictzip catalog.");
+        }
+        ByteBuffer directory = buffer.duplicate();
+        directory.position((int) directoryOffset);
+        directory.limit(buffer.capacity() - 8);
+        Map<String, Entry> entries = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            byte[] name = new byte[directory.getInt()];
+            directory.get(name);
+            Entry e = new Entry();
+            e.fileSize = directory.getLong();
+            e.lastModified = directory.getLong();
+            e.headerLength = directory.getInt();
+            e.chunkLength = directory.getInt();
+            e.chunkCount = directory.getInt();
+            e.level = DictZipHeader.CompressionLevel.values()[directory.get()];
+            e.os = DictZipHeader.OperatingSystem.values()[directory.get()];
+            e.mtime = directory.getLong();
+            e.crc = directory.getInt() & 0xffffffffL;
+            e.length = directory.getInt() & 0xffffffffL;
+            e.hasChunkCrc = directory.get() != 0;
+            e.tableOffset = (int) directory.getLong();
+            entries.put(new String(name, StandardCharsets.UTF_8), e);
+        }
+        return new DictZipCatalog(buffer, entries);
+    }
+
+    /**
+     * Get number of files in catalog.
+     * @return number of entries.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Check whether the file is in catalog and not changed after catalog is built.
+     * @param file dictzip file.
+     * @return true when catalog entry can be used for the file.
+     * @throws IOException if an I/O error has occurred.
+     */
+    public boolean isValid(final Path file) throws IOException {
+        return find(file) != null;
+    }
+
+    /**
+     * Get header of the file from catalog.
+     * @param file dictzip file.
+     * @return header whose tables are views of catalog, or null when entry is not valid.
+     * @throws IOException if an I/O error has occurred.
+     */
+    public DictZipHeader getHeader(final Path file) throws IOException {
+        Entry e = find(file);
+        if (e == null) {
+            return null;
+        }
+        return createHeader(e);
+    }
+
+    /**
+     * Open positional reader of the file.
+     * <p>
+     *     When catalog has no valid entry for the file, it reads header from the file.
+     * </p>
+     * @param file dictzip file.
+     * @return reader object.
+     * @throws IOException if an I/O error has occurred.
+     */
+    public DictZipReader openReader(final Path file) throws IOException {
+        Entry e = find(file);
+        if (e == null) {
+            return new DictZipReader(file);
+        }
+        return new DictZipReader(FileChannelStorage.open(file), createHeader(e), e.fileSize, e.crc, e.length);
+    }
+
+    /**
+     * Open positional reader of the file with channels drawn from pool.
+     * <p>
+     *     When catalog has no valid entry for the file, it reads header from the file.
+     * </p>
+     * @param file dictzip file.
+     * @param pool channel pool.
+     * @return reader object.
+     * @throws IOException if an I/O error has occurred.
+     */
+    public DictZipReader openReader(final Path file, final DictZipChannelPool pool) throws IOException {
+        Entry e = find(file);
+        if (e == null) {
+            return new DictZipReader(pool, file);
+        }
+        return new DictZipReader(pool.storage(file), createHeader(e), e.fileSize, e.crc, e.length);
+    }
+
+    /**
+     * Open input stream of the file.
+     * <p>
+     *     When catalog has no valid entry for the file, it reads header from the file.
+     * </p>
+     * @param file dictzip file.
+     * @return input stream.
+     * @throws IOException if an I/O error has occurred.
+     */
+    public DictZipInputStream openInputStream(final Path file) throws IOException {
+        Entry e = find(file);
+        if (e == null) {
+            return DictZipFiles.newDictZipInputStream(file);
+        }
+        RandomAccessInputStream in = DictZipFiles.newRandomAccessInputStream(file);
+        try {
+            return new DictZipInputStream(in, createHeader(e), e.fileSize, e.crc, e.length);
+        } catch (IOException | RuntimeException ex) {
+            in.close();
+            throw ex;
+        }
+    }
+
+    private Entry find(final Path file) throws IOException {
+        Entry e = entries.get(key(file));
+        if (e == null) {
+            return null;
+        }
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        if (attrs.size() != e.fileSize || attrs.lastModifiedTime().toMillis() != e.lastModified) {
+            return null;
+        }
+        return e;
+    }
+
+    private DictZipHeader createHeader(final Entry e) {
+        ByteBuffer table = buffer.duplicate();
+        table.position(e.tableOffset);
+        LongBuffer offsets = table.slice().asLongBuffer();
+        offsets.limit(e.chunkCount + 1);
+        IntBuffer chunkCrcs = null;
+        if (e.hasChunkCrc) {
+            table.position(e.tableOffset + (e.chunkCount + 1) * 8);
+            chunkCrcs = table.slice().asIntBuffer();
+            chunkCrcs.limit(e.chunkCount);
+            chunkCrcs = chunkCrcs.slice();
+        }
+        return DictZipHeader.fromCatalog(e.headerLength, e.chunkLength, e.chunkCount, e.level, e.os, e.mtime,
+                offsets.slice(), chunkCrcs);
+    }
+
+    private static String key(final Path file) {
+        return file.toAbsolutePath().normalize().toString();
+    }
+
+    private static void pad(final DataOutputStream out) throws IOException {
+        while (out.size() % ALIGN != 0) {
+            out.write(0);
+        }
+    }
+
+    private static ByteBuffer ensureCapacity(final ByteBuffer bb, final int required) {
+        if (bb.remaining() >= required) {
+            return bb;
+        }
+        ByteBuffer extended = ByteBuffer.allocate(Math.max(bb.capacity() * 2, bb.position() + required));
+        bb.flip();
+        extended.put(bb);
+        return extended;
+    }
+
+    /**
+     * Catalog entry of a file.
+     */
+    private static final class Entry {
+        private long fileSize;
+        private long lastModified;
+        private int headerLength;
+        private int chunkLength;
+        private int chunkCount;
+        private DictZipHeader.CompressionLevel level;
+        private DictZipHeader.OperatingSystem os;
+        private long mtime;
+        private long crc;
+        private long length;
+        private boolean hasChunkCrc;
+        private int tableOffset;
+    }
+}
@@ -0,0 +1,406 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of file channels bounded by number of open descriptors.
+ * <p>
+ *     Channels are opened lazily on acquire and shared by all users of the same file.
+ *     When more than max channels are open, least recently used channels which are
+ *     not in use are closed. A channel is never closed while a handle of it is held,
+ *     so the limit can be exceeded only while more files than the limit are busy at once.
+ * </p>
+ * <p>
+ *     Storages of the pool keep their entry and pin it with a lock free reference count,
+ *     so reads take the pool lock only when the entry has been closed, or when idle
+ *     channels should be closed. Files are opened outside of the pool lock.
+ * </p>
+ * @author Hiroshi Miura
+ */
+public final class DictZipChannelPool implements Closeable {
+
+    private final int maxOpen;
+    private final HashMap<Path, Entry> entries = new HashMap<>();
+    private volatile int openCount = 0;
+    private volatile boolean closed = false;
+
+    /**
+     * Constructor.
+     * @param maxOpen maximum number of open channels.
+     */
+    public DictZipChannelPool(final int maxOpen) {
+        if (maxOpen <= 0) {
+            throw new IllegalArgumentException("maxOpen should be positive number.");
+        }
+        this.maxOpen = maxOpen;
+    }
+
+    /**
+     * Acquire a channel of the file.
+     * <p>
+     *     The handle should be closed after read, to allow the channel to be closed.
+     * </p>
+     * @param path file to read.
+     * @return handle of the channel.
+     * @throws IOException if an I/O error has occurred at opening file, or pool is closed.
+     */
+    public Handle acquire(final Path path) throws IOException {
+        return new Handle(pin(path.toAbsolutePath().normalize()));
+    }
+
+    /**
+     * Get storage of the file which draws the channel from this pool on each read.
+     * <p>
+     *     Closing the storage does nothing, channels are closed by the pool.
+     *     The file should not change while it is read, because its size is cached.
+     * </p>
+     * @param path file to read.
+     * @return storage object.
+     */
+    public DictZipStorage storage(final Path path) {
+        return new PooledStorage(path.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Get number of open channels.
+     * @return number of open channels.
+     */
+    public int getOpenCount() {
+        return openCount;
+    }
+
+    /**
+     * Get maximum number of open channels.
+     * @return maximum number.
+     */
+    public int getMaxOpen() {
+        return maxOpen;
+    }
+
+    /**
+     * Close pool and idle channels.
+     * <p>
+     *     Channels in use are closed when their handles are released.
+     * </p>
+     * @throws IOException if an I/O error has occurred.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        IOException exception = null;
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry e = it.next();
+            if (e.retire()) {
+                it.remove();
+                try {
+                    e.channel.close();
+                } catch (IOException ex) {
+                    exception = ex;
+                }
+            }
+        }
+        openCount = entries.size();
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    /**
+     * Find or open the entry of the file, and pin it.
+     */
+    private Entry pin(final Path key) throws IOException {
+        Entry found;
+        synchronized (this) {
+            checkOpen();
+            found = entries.get(key);
+            if (found != null && !found.pin()) {
+                found = null;
+            }
+        }
+        if (found != null) {
+            return ensureOpen(found);
+        }
+        FileChannel channel = FileChannel.open(key, StandardOpenOption.READ);
+        Entry e;
+        try {
+            synchronized (this) {
+                checkOpen();
+                e = entries.get(key);
+                if (e == null || !e.pin()) {
+                    e = new Entry(key, channel);
+                    e.pin();
+                    entries.put(key, e);
+                    channel = null;
+                    evictIdle();
+                }
+            }
+        } finally {
+            if (channel != null) {
+                // other thread opened the file meanwhile, or the pool is closed.
+                channel.close();
+            }
+        }
+        return ensureOpen(e);
+    }
+
+    /**
+     * Open the channel again when it was closed by interrupt of a reader thread.
+     */
+    private Entry ensureOpen(final Entry e) throws IOException {
+        if (!e.channel.isOpen()) {
+            try {
+                synchronized (e) {
+                    if (!e.channel.isOpen()) {
+                        e.channel = FileChannel.open(e.path, StandardOpenOption.READ);
+                    }
+                }
+            } catch (IOException | RuntimeException ex) {
+                release(e);
+                throw ex;
+            }
+        }
+        return e;
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Channel pool is closed.");
+        }
+    }
+
+    private void release(final Entry e) {
+        if (e.unpin() == 0 && (closed || openCount > maxOpen)) {
+            synchronized (this) {
+                evictIdle();
+            }
+        }
+    }
+
+    /**
+     * Close least recently used idle channels over the limit, or all idle channels after close.
+     */
+    private void evictIdle() {
+        int limit = closed ? 0 : maxOpen;
+        while (entries.size() > limit) {
+            Entry victim = null;
+            for (Entry e : entries.values()) {
+                if (e.isIdle() && (victim == null || e.lastUse < victim.lastUse)) {
+                    victim = e;
+                }
+            }
+            if (victim == null || !victim.retire()) {
+                break;
+            }
+            entries.remove(victim.path);
+            closeQuietly(victim);
+        }
+        openCount = entries.size();
+    }
+
+    private static void closeQuietly(final Entry e) {
+        try {
+            e.channel.close();
+        } catch (IOException ignored) {
+            // nothing to do for a channel only read.
+        }
+    }
+
+    /**
+     * Pool entry of a file.
+     * <p>
+     *     Reference count is -1 after the entry is removed from the pool, then it cannot be pinned.
+     * </p>
+     */
+    private static final class Entry {
+        private final Path path;
+        private final AtomicInteger refCount = new AtomicInteger();
+        private volatile FileChannel channel;
+        private volatile long lastUse;
+
+        Entry(final Path path, final FileChannel channel) {
+            this.path = path;
+            this.channel = channel;
+        }
+
+        private boolean pin() {
+            for (;;) {
+                int count = refCount.get();
+                if (count < 0) {
+                    return false;
+                }
+                if (refCount.compareAndSet(count, count + 1)) {
+                    lastUse = System.nanoTime();
+                    return true;
+                }
+            }
+        }
+
+        private int unpin() {
+            return refCount.decrementAndGet();
+        }
+
+        private boolean isIdle() {
+            return refCount.get() == 0;
+        }
+
+        private boolean retire() {
+            return refCount.compareAndSet(0, -1);
+        }
+    }
+
+    /**
+     * Handle of acquired channel. Closing the handle releases the channel to the pool.
+     */
+    public final class Handle implements Closeable {
+        private final Entry entry;
+        private boolean released = false;
+
+        private Handle(final Entry entry) {
+            this.entry = entry;
+        }
+
+        /**
+         * Get the channel.
+         * <p>
+         *     Use only positional read, because the channel is shared.
+         * </p>
+         * @return file channel.
+         */
+        public FileChannel getChannel() {
+            return entry.channel;
+        }
+
+        /**
+         * Release the channel.
+         */
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                release(entry);
+            }
+        }
+    }
+
+    /**
+     * Storage which pins the channel for each read.
+     * <p>
+     *     When the shared channel is closed by interrupt of other reader, the read is
+     *     retried with a channel opened again, unless the current thread is interrupted.
+     * </p>
+     */
+    private final class PooledStorage implements DictZipStorage {
+        private static final int MAX_RETRY = 8;
+        private final Path path;
+        private volatile Entry entry;
+        private volatile long size = -1;
+
+        private PooledStorage(final Path path) {
+            this.path = path;
+        }
+
+        @Override
+        public long size() throws IOException {
+            long result = size;
+            if (result >= 0) {
+                return result;
+            }
+            for (int retry = 0;; retry++) {
+                Entry e = pinEntry();
+                try {
+                    result = e.channel.size();
+                    size = result;
+                    return result;
+                } catch (ClosedChannelException ex) {
+                    checkRetry(ex, retry);
+                } finally {
+                    release(e);
+                }
+            }
+        }
+
+        @Override
+        public int read(final long position, final ByteBuffer dst) throws IOException {
+            for (int retry = 0;; retry++) {
+                Entry e = pinEntry();
+                try {
+                    return e.channel.read(dst, position);
+                } catch (ClosedChannelException ex) {
+                    checkRetry(ex, retry);
+                } finally {
+                    release(e);
+                }
+            }
+        }
+
+        @Override
+        public void readFully(final long position, final ByteBuffer dst) throws IOException {
+            long pos = position;
+            for (int retry = 0;; retry++) {
+                Entry e = pinEntry();
+                try {
+                    FileChannel channel = e.channel;
+                    while (dst.hasRemaining()) {
+                        int n = channel.read(dst, pos);
+                        if (n < 0) {
+                            throw new EOFException();
+                        }
+                        pos += n;
+                    }
+                    return;
+                } catch (ClosedChannelException ex) {
+                    checkRetry(ex, retry);
+                } finally {
+                    release(e);
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+
+        /**
+         * Pin the entry kept by this storage, or find it in the pool when it was closed.
+         */
+        private Entry pinEntry() throws IOException {
+            checkOpen();
+            Entry e = entry;
+            if (e != null && e.pin()) {
+                return ensureOpen(e);
+            }
+            e = pin(path);
+            entry = e;
+            return e;
+        }
+
+        /**
+         * Rethrow the exception when the channel was closed by this thread or the pool.
+         */
+        private void checkRetry(final ClosedChannelException e, final int retry) throws IOException {
+            if (e instanceof ClosedByInterruptException || Thread.currentThread().isInterrupted()
+                    || retry >= MAX_RETRY || closed) {
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decoded chunk of dictzip file.
+ *
+ * @author Hiroshi Miura
+ */
+public final class DictZipChunk {
+
+    private final int index;
+    private final long offset;
+    private final ByteBuffer data;
+
+    /**
+     * Constructor.
+     * @param index chunk index.
+     * @param offset offset of the chunk in uncompressed data.
+     * @param data decoded data of the chunk.
+     */
+    public DictZipChunk(final int index, final long offset, final ByteBuffer data) {
+        this.index = index;
+        this.offset = offset;
+        this.data = data;
+    }
+
+    /**
+     * Get chunk index.
+     * @return index of chunk.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Get offset of the chunk in uncompressed data.
+     * @return offset in byte.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Get decoded data.
+     * @return read-only view of the decoded data.
+     */
+    public ByteBuffer getData() {
+        return data.asReadOnlyBuffer();
+    }
+
+    @Override
+    public String toString() {
+        return "DictZipChunk{index=" + index + ", offset=" + offset + ", length=" + data.remaining() + "}";
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Cache of decompressed chunks shared by readers.
+ * <p>
+ *     Chunks are identified by file id and chunk index. File id is derived from
+ *     contents of a dictzip file, see {@link DictZipReader#getFileId()}, so readers
+ *     of the same file share chunks. Data is copied in and out, so an implementation
+ *     can reuse its storage after eviction. Implementations should be thread-safe.
+ * </p>
+ * @author Hiroshi Miura
+ */
+public interface DictZipChunkCache {
+
+    /**
+     * Copy cached chunk into the buffer.
+     * @param fileId file id.
+     * @param index chunk index.
+     * @param dst buffer to store data, it should have remaining of chunk length.
+     * @return true when the chunk is cached and copied, false otherwise.
+     */
+    boolean get(long fileId, int index, ByteBuffer dst);
+
+    /**
+     * Put decompressed chunk.
+     * <p>
+     *     The cache can ignore the chunk by its policy.
+     * </p>
+     * @param fileId file id.
+     * @param index chunk index.
+     * @param data decompressed data between position and limit, its position is not changed.
+     */
+    void put(long fileId, int index, ByteBuffer data);
+}
@@ -0,0 +1,106 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over chunks of dictzip file.
+ * <p>
+ *     It splits on ranges of chunk index and decodes each chunk
+ *     independently, so it is suitable for parallel streams.
+ * </p>
+ * @author Hiroshi Miura
+ */
+public class DictZipChunkSpliterator implements Spliterator<DictZipChunk> {
+
+    private final DictZipReader reader;
+    private int index;
+    private final int fence;
+
+    /**
+     * Spliterator over all chunks.
+     * @param reader dictzip reader.
+     */
+    public DictZipChunkSpliterator(final DictZipReader reader) {
+        this(reader, 0, reader.getChunkCount());
+    }
+
+    /**
+     * Spliterator over range of chunks.
+     * @param reader dictzip reader.
+     * @param origin first chunk index, inclusive.
+     * @param fence last chunk index, exclusive.
+     */
+    public DictZipChunkSpliterator(final DictZipReader reader, final int origin, final int fence) {
+        if (origin < 0 || fence > reader.getChunkCount() || origin > fence) {
+            throw new IllegalArgumentException("Index is out of boundary.");
+        }
+        this.reader = reader;
+        this.index = origin;
+        this.fence = fence;
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super DictZipChunk> action) {
+        if (action == null) {
+            throw new NullPointerException();
+        }
+        if (index >= fence) {
+            return false;
+        }
+        int current = index++;
+        action.accept(decode(current));
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(final Consumer<? super DictZipChunk> action) {
+        if (action == null) {
+            throw new NullPointerException();
+        }
+        int hi = fence;
+        int i = index;
+        index = hi;
+        for (; i < hi; i++) {
+            action.accept(decode(i));
+        }
+    }
+
+    @Override
+    public Spliterator<DictZipChunk> trySplit() {
+        int lo = index;
+        int mid = (lo + fence) >>> 1;
+        if (lo >= mid) {
+            return null;
+        }
+        index = mid;
+        return new DictZipChunkSpliterator(reader, lo, mid);
+    }
+
+    @Override
+    public long estimateSize() {
+        return fence - index;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE | DISTINCT;
+    }
+
+    private DictZipChunk decode(final int i) {
+        try {
+            return new DictZipChunk(i, reader.getChunkStart(i), reader.readChunk(i));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
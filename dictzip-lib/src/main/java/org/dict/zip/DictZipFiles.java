@@ -7,10 +7,14 @@
  */
 package org.dict.zip;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.stream.Stream;
 
 /**
  * @author Hiroshi Miura
@@ -35,6 +39,78 @@ public class DictZipFiles {
         return new RandomAccessOutputStream(new RandomAccessFile(path.toFile(), "w"));
     }
 
+    /**
+     * Return parallel stream of decoded chunks of dictzip file.
+     * <p>
+     *     The file is closed when the stream is closed, so use it with try-with-resources.
+     * </p>
+     * @param path dictzip file.
+     * @return stream of chunks.
+     * @throws IOException if an I/O error has occurred at opening file.
+     */
+    public static Stream<DictZipChunk> chunks(final Path path) throws IOException {
+        DictZipReader reader = new DictZipReader(path);
+        try {
+            return reader.chunks().onClose(asUncheckedRunnable(reader));
+        } catch (Error | RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Return parallel stream of text lines of dictzip file.
+     * <p>
+     *     Chunks are decoded in parallel and lines across chunk boundaries are stitched.
+     *     The file is closed when the stream is closed.
+     * </p>
+     * @param path dictzip file.
+     * @param charset charset to decode lines, should be ASCII compatible.
+     * @return stream of lines with offsets.
+     * @throws IOException if an I/O error has occurred at opening file.
+     */
+    public static Stream<DictZipRecord> lines(final Path path, final Charset charset) throws IOException {
+        DictZipReader reader = new DictZipReader(path);
+        try {
+            return reader.lines(charset).onClose(asUncheckedRunnable(reader));
+        } catch (Error | RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Return parallel stream of text records of dictzip file separated by delimiter.
+     * <p>
+     *     The file is closed when the stream is closed.
+     * </p>
+     * @param path dictzip file.
+     * @param delimiter record delimiter in byte sequence.
+     * @param charset charset to decode records.
+     * @return stream of records with offsets.
+     * @throws IOException if an I/O error has occurred at opening file.
+     */
+    public static Stream<DictZipRecord> records(final Path path, final byte[] delimiter, final Charset charset)
+            throws IOException {
+        DictZipReader reader = new DictZipReader(path);
+        try {
+            return reader.records(delimiter, charset).onClose(asUncheckedRunnable(reader));
+        } catch (Error | RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+    }
+
+    private static Runnable asUncheckedRunnable(final Closeable c) {
+        return () -> {
+            try {
+                c.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
     /**
      * Check gzip member stream w/ CRC and length in trailer.
      * @param path to be checked.
@@ -47,6 +123,26 @@ public class DictZipFiles {
         }
     }
 
+    /**
+     * Check gzip member stream w/ CRC and length in trailer.
+     * <p>
+     *     When bypassCache is true, the file is read with DirectIOStorage so a background
+     *     check does not evict hot data from the page cache.
+     * </p>
+     * @param path to be checked.
+     * @param bypassCache true to read without page cache.
+     * @return true if it is a valid dictzip file, otherwise false.
+     * @throws IOException when CRC error or total length error.
+     */
+    public static boolean checkDictZipFile(final Path path, final boolean bypassCache) throws IOException {
+        if (!bypassCache) {
+            return checkDictZipFile(path);
+        }
+        try (DictZipInputStream dzin = new DictZipInputStream(DirectIOStorage.open(path))) {
+            return checkDictZipInputStream(dzin);
+        }
+    }
+
     /**
      * Check gzip member stream w/ CRC and length in trailer.
      * @param filename to be checked.
@@ -60,22 +156,64 @@ public class DictZipFiles {
     }
 
     /**
-     * Check gzip member stream w/ CRC and length in trailer.
+     * Check gzip member stream with the integrity check mode.
+     * @param filename to be checked.
+     * @param check integrity check mode, STREAM to verify CRC in gzip trailer.
+     * @return true if it is a valid dictzip file, otherwise false.
+     * @throws IOException when CRC error or total length error.
+     */
+    public static boolean checkDictZipFile(final String filename, final DictZipInputStream.IntegrityCheck check)
+            throws IOException {
+        try (DictZipInputStream dzin = newDictZipInputStream(Paths.get(filename))) {
+            return checkDictZipInputStream(dzin, check);
+        }
+    }
+
+    /**
+     * Check gzip member stream w/ length in trailer.
+     * <p>
+     *     CRC is not verified, because files written by releases up to 0.13.0 have a wrong CRC.
+     *     Use {@link #checkDictZipInputStream(DictZipInputStream, DictZipInputStream.IntegrityCheck)}
+     *     with STREAM to verify it.
+     * </p>
      * @param in inputstream to be checked.
      * @return true if inputstream is a valid dictzip, otherwise false.
-     * @throws IOException when CRC error or total length error.
+     * @throws IOException when total length error.
      */
     public static boolean checkDictZipInputStream(final DictZipInputStream in) throws IOException {
+        return checkDictZipInputStream(in, DictZipInputStream.IntegrityCheck.NONE);
+    }
+
+    /**
+     * Check gzip member stream with the integrity check mode.
+     * <p>
+     *     Files written by releases up to 0.13.0 have a wrong CRC in gzip trailer.
+     *     Check them with NONE, which verifies only length of data.
+     *     STREAM verifies CRC too.
+     *     Integrity check mode of the stream is restored after check.
+     * </p>
+     * @param in inputstream to be checked.
+     * @param check integrity check mode while reading.
+     * @return true if inputstream is a valid dictzip, otherwise false.
+     * @throws IOException when CRC error or total length error.
+     */
+    public static boolean checkDictZipInputStream(final DictZipInputStream in,
+                                                  final DictZipInputStream.IntegrityCheck check)
+            throws IOException {
         byte[] tmpBuf = new byte[CHECK_BUF_LEN];
-        in.seek(0);
-        long readLen = 0;
-        while (readLen < in.getLength()) {
-            int len = in.read(tmpBuf, 0, CHECK_BUF_LEN);
-            if (len < 0) {
-                break;
+        DictZipInputStream.IntegrityCheck previous = in.getIntegrityCheck();
+        in.setIntegrityCheck(check);
+        try {
+            in.seek(0);
+            long readLen = 0;
+            // read until end of data, where CRC and length are verified.
+            int len;
+            while ((len = in.read(tmpBuf, 0, CHECK_BUF_LEN)) >= 0) {
+                readLen += len;
             }
-            readLen += len;
+            return readLen == in.getLength();
+        } finally {
+            in.setIntegrityCheck(previous);
         }
-        return readLen == in.getLength();
     }
 }
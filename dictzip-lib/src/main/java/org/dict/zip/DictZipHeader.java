@@ -15,9 +15,15 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.zip.CRC32;
 import java.util.zip.CheckedInputStream;
 import java.util.zip.Deflater;
@@ -40,7 +46,10 @@ public class DictZipHeader {
     private final BitSet gzipFlag = new BitSet(GZIPFLAG_SIZE);
     private OperatingSystem headerOS = OperatingSystem.FAT;
     private CompressionLevel extraFlag;
-    private long[] offsets;
+    /**
+     * Offset of each chunk in file, followed by end of the last chunk.
+     */
+    private LongBuffer offsets;
     private int extraLength;
     private byte subfieldID1;
     private byte subfieldID2;
@@ -48,6 +57,22 @@ public class DictZipHeader {
     private int subfieldVersion;
     private int chunkLength;
     private int chunkCount;
+    /**
+     * CRC32 of uncompressed data of each chunk, null when header has no CRC table.
+     */
+    private IntBuffer chunkCrcs;
+    /**
+     * Interval of restart points in a chunk, 0 when header has no restart points.
+     */
+    private int restartInterval;
+    /**
+     * Compressed offsets of restart points from beginning of each chunk.
+     */
+    private int[] restarts;
+    /**
+     * Other subfields in extra field, keyed by two characters of subfield ID.
+     */
+    private final Map<String, byte[]> subfields = new LinkedHashMap<>();
     private long mtime;
     private String filename;
     private String comment;
@@ -65,6 +90,21 @@ public class DictZipHeader {
     private static final int INT32_LEN = 4;
     private static final int EOS_LEN = 2;
 
+    /**
+     * Subfield ID of per-chunk CRC32 table.
+     */
+    private static final byte CRC_SUBFIELD_ID1 = 'C';
+    private static final byte CRC_SUBFIELD_ID2 = 'R';
+    private static final int CRC_SUBFIELD_VERSION = 1;
+
+    /**
+     * Subfield ID of restart points in chunks.
+     */
+    private static final byte RESTART_SUBFIELD_ID1 = 'R';
+    private static final byte RESTART_SUBFIELD_ID2 = 'P';
+    private static final int RESTART_SUBFIELD_VERSION = 1;
+    private static final int MAX_EXTRA_LEN = 0xffff;
+
     /**
      * Header fields length.
      */
@@ -140,12 +180,49 @@ public class DictZipHeader {
         comment = null;
     }
 
+    /**
+     * Initialize DictZip header from values stored in catalog.
+     * <p>
+     *     Offset table and CRC table can be views of a memory mapped file.
+     *     Restart points, file name, comment and application subfields are not restored.
+     * </p>
+     * @param headerLength length of header.
+     * @param chunkLength chunk length.
+     * @param chunkCount number of chunks.
+     * @param level compression level in header.
+     * @param os operating system in header.
+     * @param mtime modification time in header.
+     * @param offsets offsets of chunks followed by end of the last chunk.
+     * @param chunkCrcs CRC32 of chunks, or null.
+     * @return header object.
+     */
+    static DictZipHeader fromCatalog(final int headerLength, final int chunkLength, final int chunkCount,
+                                     final CompressionLevel level, final OperatingSystem os, final long mtime,
+                                     final LongBuffer offsets, final IntBuffer chunkCrcs) {
+        DictZipHeader h = new DictZipHeader();
+        h.gzipFlag.set(FEXTRA);
+        h.headerLength = headerLength;
+        h.subfieldID1 = 'R';
+        h.subfieldID2 = 'A';
+        h.subfieldLength = 6 + chunkCount * 2;
+        h.subfieldVersion = 1;
+        h.chunkLength = chunkLength;
+        h.chunkCount = chunkCount;
+        h.extraFlag = level;
+        h.headerOS = os;
+        h.mtime = mtime;
+        h.offsets = offsets;
+        h.chunkCrcs = chunkCrcs;
+        return h;
+    }
+
     private void initOffsets() {
-        offsets = new long[chunks.length];
-        offsets[0] = headerLength;
-        for (int i = 1; i < chunks.length; i++) {
-            offsets[i] = offsets[i - 1] + chunks[i - 1];
+        long[] table = new long[chunks.length + 1];
+        table[0] = headerLength;
+        for (int i = 1; i <= chunks.length; i++) {
+            table[i] = table[i - 1] + chunks[i - 1];
         }
+        offsets = LongBuffer.wrap(table);
     }
 
     /**
@@ -233,16 +310,7 @@ public class DictZipHeader {
         if (h.gzipFlag.get(FEXTRA)) {
             h.extraLength = DictZipFileUtils.readUShort(in);
             h.headerLength += h.extraLength + 2;
-            h.subfieldID1 = (byte) DictZipFileUtils.readUByte(in);
-            h.subfieldID2 = (byte) DictZipFileUtils.readUByte(in);
-            h.subfieldLength = DictZipFileUtils.readUShort(in); // 2 bytes subfield length
-            h.subfieldVersion = DictZipFileUtils.readUShort(in); // 2 bytes subfield version
-            h.chunkLength = DictZipFileUtils.readUShort(in); // 2 bytes chunk length
-            h.chunkCount = DictZipFileUtils.readUShort(in); // 2 bytes chunk count
-            h.chunks = new int[h.chunkCount];
-            for (int i = 0; i < h.chunkCount; i++) {
-                h.chunks[i] = DictZipFileUtils.readUShort(in);
-            }
+            readSubfields(h, in);
         }
         // Skip optional file name
         if (h.gzipFlag.get(FNAME)) {
@@ -273,6 +341,118 @@ public class DictZipHeader {
         h.initOffsets();
     }
 
+    /**
+     * Read subfields in extra field.
+     * <p>
+     *     Extra field can hold multiple subfields. 'RA' is random access field,
+     *     'CR' is optional CRC32 table of chunks and 'RP' is optional restart points
+     *     in chunks. Other subfields are kept as they are.
+     * </p>
+     * <pre>
+     * +---+---+---+---+==================================+
+     * |SI1|SI2|  LEN  |... LEN bytes of subfield data ...|
+     * +---+---+---+---+==================================+
+     * </pre>
+     * @param h return dictzip header values.
+     * @param in input stream for retrieve header.
+     * @throws IOException when error in file read or field is corrupt.
+     */
+    private static void readSubfields(final DictZipHeader h, final InputStream in) throws IOException {
+        int remaining = h.extraLength;
+        while (remaining >= 4) {
+            byte id1 = (byte) DictZipFileUtils.readUByte(in);
+            byte id2 = (byte) DictZipFileUtils.readUByte(in);
+            int length = DictZipFileUtils.readUShort(in); // 2 bytes subfield length
+            remaining -= 4;
+            if (length > remaining) {
+                throw new IOException("Corrupt GZIP header");
+            }
+            remaining -= length;
+            if (id1 == 'R' && id2 == 'A') {
+                h.subfieldID1 = id1;
+                h.subfieldID2 = id2;
+                h.subfieldLength = length;
+                h.subfieldVersion = DictZipFileUtils.readUShort(in); // 2 bytes subfield version
+                h.chunkLength = DictZipFileUtils.readUShort(in); // 2 bytes chunk length
+                h.chunkCount = DictZipFileUtils.readUShort(in); // 2 bytes chunk count
+                h.chunks = new int[h.chunkCount];
+                for (int i = 0; i < h.chunkCount; i++) {
+                    h.chunks[i] = DictZipFileUtils.readUShort(in);
+                }
+                skipFully(in, length - 6 - h.chunkCount * 2);
+            } else if (id1 == CRC_SUBFIELD_ID1 && id2 == CRC_SUBFIELD_ID2) {
+                /*
+                 * CRC Table Field
+                 * +---+---+---+---+===============================+
+                 * |  VER  | CHCNT |  ... CHCNT dwords of CRC32 ... |
+                 * +---+---+---+---+===============================+
+                 */
+                if (length < 4) {
+                    throw new IOException("Corrupt GZIP header");
+                }
+                DictZipFileUtils.readUShort(in); // 2 bytes subfield version
+                int count = DictZipFileUtils.readUShort(in);
+                if (length < 4 + count * INT32_LEN) {
+                    throw new IOException("Corrupt GZIP header");
+                }
+                h.chunkCrcs = IntBuffer.allocate(count);
+                for (int i = 0; i < count; i++) {
+                    h.chunkCrcs.put(i, (int) DictZipFileUtils.readUInt(in));
+                }
+                skipFully(in, length - 4 - count * INT32_LEN);
+            } else if (id1 == RESTART_SUBFIELD_ID1 && id2 == RESTART_SUBFIELD_ID2) {
+                /*
+                 * Restart Points Field
+                 * +---+---+---+---+---+---+=====================================+
+                 * |  VER  | INTVL | CHCNT |  ... CHCNT * N words of offsets ... |
+                 * +---+---+---+---+---+---+=====================================+
+                 * N is (CHLEN - 1) / INTVL, and 0 is for no point.
+                 */
+                if (length < 6) {
+                    throw new IOException("Corrupt GZIP header");
+                }
+                DictZipFileUtils.readUShort(in); // 2 bytes subfield version
+                int interval = DictZipFileUtils.readUShort(in);
+                int count = DictZipFileUtils.readUShort(in);
+                if (interval == 0 || h.chunkLength == 0) {
+                    throw new IOException("Corrupt GZIP header");
+                }
+                int size = count * ((h.chunkLength - 1) / interval);
+                if (length < 6 + size * 2) {
+                    throw new IOException("Corrupt GZIP header");
+                }
+                h.restartInterval = interval;
+                h.restarts = new int[size];
+                for (int i = 0; i < size; i++) {
+                    h.restarts[i] = DictZipFileUtils.readUShort(in);
+                }
+                skipFully(in, length - 6 - size * 2);
+            } else {
+                byte[] data = new byte[length];
+                for (int i = 0; i < length; i++) {
+                    data[i] = (byte) DictZipFileUtils.readUByte(in);
+                }
+                h.subfields.put(new String(new byte[] {id1, id2}, CHARSET), data);
+            }
+        }
+        skipFully(in, remaining);
+        if (h.chunkCrcs != null && h.chunkCrcs.capacity() != h.chunkCount) {
+            throw new IOException("Corrupt GZIP header");
+        }
+        if (h.restarts != null && h.restarts.length != h.chunkCount * h.getRestartsPerChunk()) {
+            throw new IOException("Corrupt GZIP header");
+        }
+    }
+
+    private static void skipFully(final InputStream in, final int n) throws IOException {
+        if (n < 0) {
+            throw new IOException("Corrupt GZIP header");
+        }
+        for (int i = 0; i < n; i++) {
+            DictZipFileUtils.readUByte(in);
+        }
+    }
+
     @Override
     public final String toString() {
         StringBuilder sb = new StringBuilder();
@@ -316,11 +496,49 @@ public class DictZipHeader {
         bb.putShort((short) h.chunkCount);
         out.write(bb.array());
         for (int i = 0; i < h.chunkCount; i++) {
-            DictZipFileUtils.writeShort(out, h.chunks[i]);
-            chunkbb.putShort((short) h.chunks[i]);
+            DictZipFileUtils.writeShort(out, h.getChunkSize(i));
+            chunkbb.putShort((short) h.getChunkSize(i));
         }
         headerCrc.update(bb.array());
         headerCrc.update(chunkbb.array());
+        if (h.chunkCrcs != null) {
+            ByteBuffer crcbb = ByteBuffer.allocate(h.getCrcSubfieldLength() + 4).order(ByteOrder.LITTLE_ENDIAN);
+            crcbb.put(CRC_SUBFIELD_ID1);
+            crcbb.put(CRC_SUBFIELD_ID2);
+            crcbb.putShort((short) h.getCrcSubfieldLength());
+            crcbb.putShort((short) CRC_SUBFIELD_VERSION);
+            crcbb.putShort((short) h.chunkCount);
+            for (int i = 0; i < h.chunkCount; i++) {
+                crcbb.putInt(h.chunkCrcs.get(i));
+            }
+            out.write(crcbb.array());
+            headerCrc.update(crcbb.array());
+        }
+        if (h.restarts != null) {
+            int length = h.getRestartSubfieldLength();
+            ByteBuffer rpbb = ByteBuffer.allocate(length + 4).order(ByteOrder.LITTLE_ENDIAN);
+            rpbb.put(RESTART_SUBFIELD_ID1);
+            rpbb.put(RESTART_SUBFIELD_ID2);
+            rpbb.putShort((short) length);
+            rpbb.putShort((short) RESTART_SUBFIELD_VERSION);
+            rpbb.putShort((short) h.restartInterval);
+            rpbb.putShort((short) h.chunkCount);
+            for (int value : h.restarts) {
+                rpbb.putShort((short) value);
+            }
+            out.write(rpbb.array());
+            headerCrc.update(rpbb.array());
+        }
+        for (Map.Entry<String, byte[]> entry : h.subfields.entrySet()) {
+            byte[] data = entry.getValue();
+            ByteBuffer sfbb = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            sfbb.put(entry.getKey().getBytes(CHARSET));
+            sfbb.putShort((short) data.length);
+            out.write(sfbb.array());
+            out.write(data);
+            headerCrc.update(sfbb.array());
+            headerCrc.update(data);
+        }
         if (h.gzipFlag.get(FNAME)) {
             if (h.filename != null) {
                 out.write(h.filename.getBytes(CHARSET));
@@ -342,6 +560,9 @@ public class DictZipHeader {
 
     /**
      * Offset getter.
+     * <p>
+     *     When header has restart points, it is an offset from the nearest restart point.
+     * </p>
      *
      * @param start total offset bytes.
      * @return offset in the chunk.
@@ -350,7 +571,7 @@ public class DictZipHeader {
     public final int getOffset(final long start) throws IllegalArgumentException {
         long off = start % this.chunkLength;
         if (off < MAX_DATA_SIZE) {
-            return (int) off;
+            return (int) off - getRestartPoint(start) * restartInterval;
         } else {
             throw new IllegalArgumentException("Index is out of boundary.");
         }
@@ -358,6 +579,9 @@ public class DictZipHeader {
 
     /**
      * Return dictionary position.
+     * <p>
+     *     When header has restart points, it is a position of the nearest restart point.
+     * </p>
      *
      * @param start total offset bytes.
      * @return chunk position.
@@ -366,10 +590,250 @@ public class DictZipHeader {
     public final long getPosition(final long start) throws IllegalArgumentException {
         long idx = start / this.chunkLength;
         if (idx < Integer.MAX_VALUE) {
-            return this.offsets[(int) idx];
+            int point = getRestartPoint(start);
+            if (point > 0) {
+                return this.offsets.get((int) idx) + restarts[(int) idx * getRestartsPerChunk() + point - 1];
+            }
+            return this.offsets.get((int) idx);
+        } else {
+            throw new IllegalArgumentException("Index is out of boundary.");
+        }
+    }
+
+    /**
+     * Find the nearest restart point before the position.
+     * @param start total offset bytes.
+     * @return number of the restart point in the chunk, 0 for beginning of the chunk.
+     */
+    private int getRestartPoint(final long start) {
+        if (restarts == null) {
+            return 0;
+        }
+        long idx = start / this.chunkLength;
+        if (idx >= chunkCount) {
+            return 0;
+        }
+        int n = getRestartsPerChunk();
+        int point = (int) (start % this.chunkLength) / restartInterval;
+        while (point > 0 && restarts[(int) idx * n + point - 1] == 0) {
+            point--;
+        }
+        return point;
+    }
+
+    /**
+     * Return offset of the chunk in compressed file.
+     *
+     * @param index chunk index.
+     * @return offset of the chunk from beginning of the file.
+     * @throws IllegalArgumentException when index is out of boundary.
+     */
+    public final long getChunkOffset(final int index) throws IllegalArgumentException {
+        if (index < 0 || index >= chunkCount) {
+            throw new IllegalArgumentException("Index is out of boundary.");
+        }
+        return offsets.get(index);
+    }
+
+    /**
+     * Return compressed size of the chunk recorded in header.
+     *
+     * @param index chunk index.
+     * @return compressed size of the chunk.
+     * @throws IllegalArgumentException when index is out of boundary.
+     */
+    public final int getChunkSize(final int index) throws IllegalArgumentException {
+        if (index < 0 || index >= chunkCount) {
+            throw new IllegalArgumentException("Index is out of boundary.");
+        }
+        if (chunks == null) {
+            return (int) (offsets.get(index + 1) - offsets.get(index));
+        }
+        return chunks[index];
+    }
+
+    /**
+     * Enable or disable CRC32 table of chunks.
+     * <p>
+     *     The table is stored as 'CR' subfield following 'RA' subfield,
+     *     so ordinary dictzip and gzip readers ignore it.
+     *     Each chunk takes 4 bytes in extra field limited to 64kB,
+     *     then it is available up to about 10900 chunks.
+     * </p>
+     * @param val true when store CRC32 of each chunk.
+     * @throws IllegalArgumentException when the table does not fit in extra field.
+     */
+    public void setChunkCRC(final boolean val) throws IllegalArgumentException {
+        if (val == (chunkCrcs != null)) {
+            return;
+        }
+        int length = 4 + 4 + chunkCount * INT32_LEN;
+        if (val) {
+            if (extraLength + length > MAX_EXTRA_LEN) {
+                throw new IllegalArgumentException("Too many chunks for CRC table.");
+            }
+            chunkCrcs = IntBuffer.allocate(chunkCount);
         } else {
+            chunkCrcs = null;
+            length = -length;
+        }
+        extraLength += length;
+        headerLength += length;
+    }
+
+    /**
+     * Whether header has CRC32 table of chunks.
+     * @return true when header has the table.
+     */
+    public boolean hasChunkCRC() {
+        return chunkCrcs != null;
+    }
+
+    /**
+     * Return CRC32 of uncompressed data of the chunk.
+     *
+     * @param index chunk index.
+     * @return CRC32 value of the chunk.
+     * @throws IllegalArgumentException when index is out of boundary.
+     * @throws IllegalStateException when header has no CRC table.
+     */
+    public final long getChunkCRC(final int index) throws IllegalArgumentException {
+        if (chunkCrcs == null) {
+            throw new IllegalStateException("Header has no chunk CRC table.");
+        }
+        if (index < 0 || index >= chunkCount) {
             throw new IllegalArgumentException("Index is out of boundary.");
         }
+        return chunkCrcs.get(index) & 0xffffffffL;
+    }
+
+    /**
+     * Set CRC32 of the chunk, used by DictZipOutputStream.
+     * @param index chunk index.
+     * @param value CRC32 value.
+     */
+    void putChunkCRC(final int index, final long value) {
+        chunkCrcs.put(index, (int) value);
+    }
+
+    private int getCrcSubfieldLength() {
+        return 4 + chunkCount * INT32_LEN;
+    }
+
+    /**
+     * Set interval of restart points in chunks.
+     * <p>
+     *     Writer flushes deflater at every interval in a chunk, and stores compressed
+     *     offsets of the points as 'RP' subfield, so seek decodes from the nearest point
+     *     instead of the beginning of the chunk. Each point takes 2 bytes in extra field
+     *     limited to 64kB.
+     * </p>
+     * @param interval interval in uncompressed bytes, 0 for no restart point.
+     * @throws IllegalArgumentException when interval is out of range or points do not fit in extra field.
+     */
+    public void setRestartInterval(final int interval) throws IllegalArgumentException {
+        if (interval < 0 || interval >= chunkLength) {
+            throw new IllegalArgumentException("Restart interval is out of range.");
+        }
+        int oldLength = restarts == null ? 0 : getRestartSubfieldLength() + 4;
+        int oldInterval = restartInterval;
+        restartInterval = interval;
+        int newLength = interval == 0 ? 0 : getRestartSubfieldLength() + 4;
+        if (extraLength - oldLength + newLength > MAX_EXTRA_LEN) {
+            restartInterval = oldInterval;
+            throw new IllegalArgumentException("Too many restart points for extra field.");
+        }
+        restarts = interval == 0 ? null : new int[chunkCount * getRestartsPerChunk()];
+        extraLength += newLength - oldLength;
+        headerLength += newLength - oldLength;
+    }
+
+    /**
+     * Return interval of restart points in chunks.
+     * @return interval in uncompressed bytes, 0 when header has no restart point.
+     */
+    public int getRestartInterval() {
+        return restartInterval;
+    }
+
+    /**
+     * Set compressed offset of restart point, used by DictZipOutputStream.
+     * @param index chunk index.
+     * @param point number of the restart point in the chunk, starts from 1.
+     * @param offset compressed offset from beginning of the chunk.
+     */
+    void putRestartOffset(final int index, final int point, final int offset) {
+        restarts[index * getRestartsPerChunk() + point - 1] = offset;
+    }
+
+    private int getRestartsPerChunk() {
+        return (chunkLength - 1) / restartInterval;
+    }
+
+    private int getRestartSubfieldLength() {
+        return 6 + chunkCount * getRestartsPerChunk() * 2;
+    }
+
+    /**
+     * Put a subfield to extra field.
+     * <p>
+     *     Applications can store small metadata or lookup structures in the header,
+     *     then they are loaded with the header. 'RA', 'CR' and 'RP' are reserved by dictzip.
+     *     Total size of extra field is limited to 64kB.
+     * </p>
+     * @param id subfield ID of two ISO-8859-1 characters.
+     * @param data content of the subfield.
+     * @throws IllegalArgumentException when ID is invalid or reserved, or subfield does not fit in extra field.
+     */
+    public void putSubfield(final String id, final byte[] data) throws IllegalArgumentException {
+        checkSubfieldId(id);
+        byte[] old = subfields.get(id);
+        int delta = 4 + data.length - (old == null ? 0 : 4 + old.length);
+        if (extraLength + delta > MAX_EXTRA_LEN) {
+            throw new IllegalArgumentException("Subfield does not fit in extra field.");
+        }
+        subfields.put(id, data.clone());
+        extraLength += delta;
+        headerLength += delta;
+    }
+
+    /**
+     * Remove a subfield from extra field.
+     * @param id subfield ID of two characters.
+     */
+    public void removeSubfield(final String id) {
+        byte[] old = subfields.remove(id);
+        if (old != null) {
+            extraLength -= 4 + old.length;
+            headerLength -= 4 + old.length;
+        }
+    }
+
+    /**
+     * Get content of a subfield other than dictzip ones.
+     * @param id subfield ID of two characters.
+     * @return copy of the content, or null when header does not have the subfield.
+     */
+    public byte[] getSubfield(final String id) {
+        byte[] data = subfields.get(id);
+        return data == null ? null : data.clone();
+    }
+
+    /**
+     * Get IDs of subfields other than dictzip ones.
+     * @return set of subfield IDs in order of extra field.
+     */
+    public Set<String> getSubfieldIds() {
+        return Collections.unmodifiableSet(subfields.keySet());
+    }
+
+    private static void checkSubfieldId(final String id) {
+        if (id == null || id.length() != 2 || !CHARSET.newEncoder().canEncode(id) || id.charAt(1) == 0) {
+            throw new IllegalArgumentException("Subfield ID should be two ISO-8859-1 characters.");
+        }
+        if ("RA".equals(id) || "CR".equals(id) || "RP".equals(id)) {
+            throw new IllegalArgumentException("Subfield ID is reserved by dictzip.");
+        }
     }
 
     /**
@@ -520,7 +984,7 @@ public class DictZipHeader {
     public long getMemberLength() {
         // The member length is sum of followings
         // offset of last chunk + size of last chunk + EOS field + CRC32 field + uncomp size field
-        return (long) offsets[chunkCount - 1] + chunks[chunkCount - 1] + EOS_LEN + INT32_LEN * 2;
+        return offsets.get(chunkCount) + EOS_LEN + INT32_LEN * 2;
     }
 
     /**
@@ -9,16 +9,27 @@
 
 package org.dict.zip;
 
+import java.io.ByteArrayInputStream;
 import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 
 import java.util.zip.CRC32;
 import java.util.zip.Inflater;
 import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
 
 
 /**
  * DictZipInputStream.
+ * <p>
+ *     When constructed with RandomAccessInputStream, it supports seek and
+ *     reads gzip trailer at construction. Otherwise it decodes forward only,
+ *     and verifies CRC and length in gzip trailer when it reaches end of data.
+ * </p>
  *
  * @author Ho Ngoc Duc
  * @author Hiroshi Miura
@@ -52,6 +63,32 @@ public class DictZipInputStream extends InflaterInputStream {
      */
     private boolean eos;
 
+    /**
+     * True when underlying stream is not seekable.
+     */
+    private final boolean sequential;
+    private boolean trailerRead = false;
+
+    private IntegrityCheck integrityCheck = IntegrityCheck.NONE;
+    /**
+     * True while data has been read sequentially from the beginning.
+     */
+    private boolean crcValid = true;
+    /**
+     * CRC-32 of the chunk being read, for CHUNK integrity check.
+     */
+    private final CRC32 chunkCrc = new CRC32();
+    /**
+     * True while the chunk being read has been read from its beginning.
+     */
+    private boolean chunkCrcValid = false;
+    /**
+     * Reader to decode whole chunks through chunk cache, or null when cache is not used.
+     */
+    private DictZipReader chunkReader;
+    private byte[] chunkData;
+    private int chunkIndex = -1;
+
     /*
      * Super class has three protected variables.
      * protected byte[] buf
@@ -84,6 +121,16 @@ public class DictZipInputStream extends InflaterInputStream {
         this(in, BUF_LEN);
     }
 
+    /**
+     * Creates a new input stream from a storage.
+     *
+     * @param storage the storage of dictzip data
+     * @exception IOException if an I/O error has occurred
+     */
+    public DictZipInputStream(final DictZipStorage storage) throws IOException {
+        this(new RandomAccessInputStream(storage), BUF_LEN);
+    }
+
     /**
      * Creates a new input stream with the specified buffer size.
      *
@@ -92,11 +139,63 @@ public class DictZipInputStream extends InflaterInputStream {
      * @exception IOException if an I/O error has occurred
      */
     public DictZipInputStream(final RandomAccessInputStream in, final int size) throws IOException {
+        this((InputStream) in, size);
+    }
+
+    /**
+     * Creates a new input stream over any input stream.
+     * <p>
+     *     When the stream is not a RandomAccessInputStream, it works in forward only mode.
+     *     seek() is not supported. With integrity check STREAM, CRC and length are verified
+     *     when reaching end of data.
+     * </p>
+     * @param in the input stream
+     * @param size the input buffer size
+     * @exception IOException if an I/O error has occurred
+     */
+    public DictZipInputStream(final InputStream in, final int size) throws IOException {
         super(in, new Inflater(true), size);
+        sequential = !(in instanceof RandomAccessInputStream);
         header = readHeader();
-        in.mark(in.getLength());
-        readTrailer();
-        in.reset();
+        if (!sequential) {
+            RandomAccessInputStream rain = (RandomAccessInputStream) in;
+            rain.setChunkBoundaries(header);
+            rain.mark(rain.getLength());
+            readTrailer();
+            rain.reset();
+        }
+    }
+
+    /**
+     * Creates a new input stream with known header and trailer values.
+     * @param in the input stream
+     * @param header header of the stream.
+     * @param compLength size of the file.
+     * @param crcVal CRC value in gzip trailer.
+     * @param totalLength uncompressed length in gzip trailer.
+     * @exception IOException if an I/O error has occurred
+     */
+    DictZipInputStream(final RandomAccessInputStream in, final DictZipHeader header, final long compLength,
+                       final long crcVal, final long totalLength) throws IOException {
+        super(in, new Inflater(true), BUF_LEN);
+        sequential = false;
+        this.header = header;
+        this.compLength = compLength;
+        this.crcVal = crcVal;
+        this.totalLength = totalLength;
+        trailerRead = true;
+        in.setChunkBoundaries(header);
+        in.seek(header.getHeaderLength());
+    }
+
+    /**
+     * Creates a new forward only input stream from a channel.
+     *
+     * @param channel the channel to read
+     * @exception IOException if an I/O error has occurred
+     */
+    public DictZipInputStream(final ReadableByteChannel channel) throws IOException {
+        this(Channels.newInputStream(channel), BUF_LEN);
     }
 
     /**
@@ -122,7 +221,7 @@ public class DictZipInputStream extends InflaterInputStream {
 
     @Override
     public final boolean markSupported() {
-        return true;
+        return !sequential;
     }
 
     @Override
@@ -136,6 +235,9 @@ public class DictZipInputStream extends InflaterInputStream {
 
     @Override
     public final void reset() throws IOException {
+        if (sequential) {
+            throw new IOException("mark/reset not supported");
+        }
         if (markOffset == -1 || position() > mark + markOffset || position() < mark - markOffset) {
             throw new IOException("Cannot reset to mark because offset overcome.");
         }
@@ -165,6 +267,9 @@ public class DictZipInputStream extends InflaterInputStream {
         } else if (size == 0) {
             return 0;
         }
+        if (chunkReader != null) {
+            return readChunk(buffer, off, size);
+        }
         // skip to offset
         if (offset > 0) {
             int total;
@@ -181,6 +286,7 @@ public class DictZipInputStream extends InflaterInputStream {
                     eos = true;
                     return -1;
                 }
+                updateChunkCrc(b, 0, len, rawOffset - offset + total);
             }
             offset = 0;
         }
@@ -188,8 +294,17 @@ public class DictZipInputStream extends InflaterInputStream {
         int readLen = super.read(buffer, off, size);
         if (readLen == -1) {
             eos = true;
+            verifyLastChunk();
+            if (sequential) {
+                readSequentialTrailer();
+            } else if (integrityCheck == IntegrityCheck.STREAM && crcValid) {
+                verifyTrailer();
+            }
         } else {
-            crc.update(buffer, off, readLen);
+            if (integrityCheck == IntegrityCheck.STREAM && crcValid) {
+                crc.update(buffer, off, readLen);
+            }
+            updateChunkCrc(buffer, off, readLen, rawOffset);
             rawOffset += readLen;
         }
         // check mark/markOffset
@@ -201,6 +316,38 @@ public class DictZipInputStream extends InflaterInputStream {
         return readLen;
     }
 
+    /**
+     * Read from whole chunk decoded or copied from chunk cache.
+     */
+    private int readChunk(final byte[] buffer, final int off, final int size) throws IOException {
+        if (rawOffset >= totalLength) {
+            eos = true;
+            if (integrityCheck == IntegrityCheck.STREAM && crcValid) {
+                verifyTrailer();
+            }
+            return -1;
+        }
+        int chunkLength = header.getChunkLength();
+        int index = (int) (rawOffset / chunkLength);
+        int len = chunkReader.getChunkDataLength(index);
+        if (index != chunkIndex) {
+            chunkIndex = -1;
+            chunkReader.decodeChunk(index, inf, chunkData, len);
+            chunkIndex = index;
+        }
+        int inChunk = (int) (rawOffset % chunkLength);
+        int readLen = Math.min(size, len - inChunk);
+        System.arraycopy(chunkData, inChunk, buffer, off, readLen);
+        if (integrityCheck == IntegrityCheck.STREAM && crcValid) {
+            crc.update(buffer, off, readLen);
+        }
+        rawOffset += readLen;
+        if (markOffset >= 0 && position() > mark + markOffset) {
+            markOffset = -1;
+        }
+        return readLen;
+    }
+
     /**
      * Read full data.
      *
@@ -252,10 +399,21 @@ public class DictZipInputStream extends InflaterInputStream {
      */
     public void seek(final long next) throws IOException {
         rawOffset = next;
+        // running CRC is meaningful only for reads from the beginning.
+        crcValid = next == 0;
+        crc.reset();
         if (in instanceof RandomAccessInputStream) {
             RandomAccessInputStream rain = (RandomAccessInputStream) in;
-            offset = header.getOffset(next);
-            long pos = header.getPosition(next);
+            long pos;
+            if (integrityCheck == IntegrityCheck.CHUNK && header.hasChunkCRC()) {
+                // decode from the beginning of the chunk to verify its CRC.
+                int chunkLength = header.getChunkLength();
+                offset = (int) (next % chunkLength);
+                pos = header.getChunkOffset((int) (next / chunkLength));
+            } else {
+                offset = header.getOffset(next);
+                pos = header.getPosition(next);
+            }
             rain.seek(pos);
             inf.reset();
             eos = false;
@@ -264,6 +422,72 @@ public class DictZipInputStream extends InflaterInputStream {
         }
     }
 
+    /**
+     * Set chunk cache.
+     * <p>
+     *     When cache is set, the stream decodes whole chunks and looks up them in
+     *     and puts them into the cache, so chunks read by other streams and readers of
+     *     the same file are not decoded again. CRC of chunks is verified on decode
+     *     when the header has chunk CRC table.
+     * </p>
+     * @param cache chunk cache, or null to stop using cache.
+     * @throws IOException when the stream is not seekable, or an I/O error has occurred.
+     */
+    public void setChunkCache(final DictZipChunkCache cache) throws IOException {
+        if (sequential) {
+            throw new IOException("Illegal type of InputStream.");
+        }
+        if (cache == null) {
+            if (chunkReader != null) {
+                chunkReader = null;
+                chunkData = null;
+                chunkIndex = -1;
+                // restore state of stream decoding.
+                seek(rawOffset);
+            }
+            return;
+        }
+        if (chunkReader == null) {
+            chunkReader = new DictZipReader(((RandomAccessInputStream) in).getStorage(), header, compLength,
+                    crcVal, totalLength);
+            chunkData = new byte[header.getChunkLength()];
+        }
+        chunkReader.setChunkCache(cache);
+    }
+
+    /**
+     * Get chunk cache.
+     * @return chunk cache, or null when not set.
+     */
+    public DictZipChunkCache getChunkCache() {
+        return chunkReader == null ? null : chunkReader.getChunkCache();
+    }
+
+    /**
+     * Set integrity check mode.
+     * <p>
+     *     Default is NONE, because files written by releases up to 0.13.0 have
+     *     a wrong CRC in gzip trailer and fail STREAM verification.
+     * </p>
+     * @param check integrity check mode.
+     */
+    public void setIntegrityCheck(final IntegrityCheck check) {
+        if (check == null) {
+            throw new NullPointerException();
+        }
+        integrityCheck = check;
+        // chunk CRC is calculated from the next chunk boundary.
+        chunkCrcValid = false;
+    }
+
+    /**
+     * Get integrity check mode.
+     * @return integrity check mode.
+     */
+    public IntegrityCheck getIntegrityCheck() {
+        return integrityCheck;
+    }
+
     /**
      * Return CRC value set to gzip trailer.
      * @return CRC value.
@@ -346,19 +570,155 @@ public class DictZipInputStream extends InflaterInputStream {
         return header.getFilename();
     }
 
+    /**
+     * Get application subfield in extra field if exist.
+     * @param id subfield ID of two characters.
+     * @return content of the subfield or null.
+     */
+    public byte[] getSubfield(final String id) {
+        return header.getSubfield(id);
+    }
+
     /**
      * Reads GZIP member trailer.
      * @throws java.io.IOException If file I/O error
      */
     void readTrailer() throws IOException {
+        if (trailerRead) {
+            return;
+        }
         if (in instanceof RandomAccessInputStream) {
             RandomAccessInputStream rain = (RandomAccessInputStream) in;
             compLength = rain.length();
             rain.seek(compLength - 8);
             crcVal = DictZipFileUtils.readUInt(rain);
             totalLength = DictZipFileUtils.readUInt(rain);
+            trailerRead = true;
         } else {
             throw new IOException("Illegal type of InputStream.");
         }
     }
+
+    /**
+     * Reads GZIP member trailer following deflate data, and verify it.
+     * <p>
+     *     Length is always verified, because it is right also in files written by old releases.
+     *     CRC is verified with STREAM integrity check.
+     * </p>
+     * @throws java.io.IOException If file I/O error, or CRC or length mismatch.
+     */
+    private void readSequentialTrailer() throws IOException {
+        if (trailerRead) {
+            return;
+        }
+        InputStream tin = in;
+        int n = inf.getRemaining();
+        if (n > 0) {
+            tin = new SequenceInputStream(new ByteArrayInputStream(buf, len - n, n), in);
+        }
+        crcVal = DictZipFileUtils.readUInt(tin);
+        totalLength = DictZipFileUtils.readUInt(tin);
+        compLength = header.getHeaderLength() + inf.getBytesRead() + 8;
+        trailerRead = true;
+        if (integrityCheck == IntegrityCheck.STREAM) {
+            verifyTrailer();
+        } else {
+            verifyLength();
+        }
+    }
+
+    /**
+     * Verify CRC and length of data read from the beginning.
+     * @throws ZipException when CRC or length mismatch.
+     */
+    private void verifyTrailer() throws ZipException {
+        if (crcVal != crc.getValue()) {
+            throw new ZipException("Corrupt GZIP trailer: CRC mismatch");
+        }
+        verifyLength();
+    }
+
+    /**
+     * Verify length of data read from the beginning.
+     * @throws ZipException when length mismatch.
+     */
+    private void verifyLength() throws ZipException {
+        if (totalLength != (rawOffset & 0xffffffffL)) {
+            throw new ZipException("Corrupt GZIP trailer: length mismatch");
+        }
+    }
+
+    /**
+     * Update CRC of chunks with decoded data, and verify it at each end of chunk.
+     * @param b decoded data.
+     * @param off offset of data.
+     * @param size length of data.
+     * @param position uncompressed position of data.
+     * @throws ZipException when CRC of a chunk mismatch.
+     */
+    private void updateChunkCrc(final byte[] b, final int off, final int size, final long position)
+            throws ZipException {
+        if (integrityCheck != IntegrityCheck.CHUNK || !header.hasChunkCRC()) {
+            return;
+        }
+        int chunkLength = header.getChunkLength();
+        int done = 0;
+        while (done < size) {
+            long pos = position + done;
+            int inChunk = (int) (pos % chunkLength);
+            int n = Math.min(size - done, chunkLength - inChunk);
+            if (inChunk == 0) {
+                chunkCrc.reset();
+                chunkCrcValid = true;
+            }
+            if (chunkCrcValid) {
+                chunkCrc.update(b, off + done, n);
+                if (inChunk + n == chunkLength) {
+                    verifyChunk((int) (pos / chunkLength));
+                }
+            }
+            done += n;
+        }
+    }
+
+    private void verifyLastChunk() throws ZipException {
+        if (integrityCheck == IntegrityCheck.CHUNK && header.hasChunkCRC() && chunkCrcValid
+                && rawOffset % header.getChunkLength() != 0) {
+            verifyChunk((int) (rawOffset / header.getChunkLength()));
+        }
+    }
+
+    private void verifyChunk(final int index) throws ZipException {
+        if (index < header.getChunkCount() && chunkCrc.getValue() != header.getChunkCRC(index)) {
+            throw new ZipException("Corrupt chunk: CRC mismatch at chunk " + index);
+        }
+        chunkCrcValid = false;
+    }
+
+    /**
+     * Integrity check modes.
+     * <ul>
+     * <li>{@link #NONE}</li>
+     * <li>{@link #STREAM}</li>
+     * <li>{@link #CHUNK}</li>
+     * </ul>
+     */
+    public enum IntegrityCheck {
+        /**
+         * No CRC calculation. Suitable for random access.
+         */
+        NONE,
+        /**
+         * Calculate CRC while data is read sequentially from the beginning,
+         * and verify CRC and length in gzip trailer at end of data.
+         * After seek to other than the beginning, no CRC is calculated.
+         */
+        STREAM,
+        /**
+         * Verify CRC of each chunk decoded, when header has CRC table of chunks.
+         * It works after seek too, because seek decodes from the beginning of the chunk
+         * instead of the nearest restart point.
+         */
+        CHUNK
+    }
 }
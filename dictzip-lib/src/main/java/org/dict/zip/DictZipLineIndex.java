@@ -0,0 +1,238 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Line number index of dictzip text file.
+ * <p>
+ *     The index records number of line feeds in each chunk, and optionally
+ *     offsets of every N-th line in a chunk. It is built with one parallel
+ *     pass over chunks and can be stored as a small sidecar file.
+ * </p>
+ * @author Hiroshi Miura
+ */
+public final class DictZipLineIndex {
+
+    private static final int MAGIC = 0x445a4c49;  // "DZLI"
+    private static final int VERSION = 1;
+    private static final int[] EMPTY = new int[0];
+
+    private final int chunkLength;
+    private final long totalLength;
+    private final long crc;
+    private final int sampleInterval;
+    private final boolean endsWithLineFeed;
+    /** Number of line feeds before each chunk, has chunk count + 1 elements. */
+    private final long[] cumulative;
+    /** Offsets in chunk just after every sampleInterval-th line feed of the chunk. */
+    private final int[][] samples;
+
+    private DictZipLineIndex(final int chunkLength, final long totalLength, final long crc,
+                             final int sampleInterval, final boolean endsWithLineFeed,
+                             final long[] cumulative, final int[][] samples) {
+        this.chunkLength = chunkLength;
+        this.totalLength = totalLength;
+        this.crc = crc;
+        this.sampleInterval = sampleInterval;
+        this.endsWithLineFeed = endsWithLineFeed;
+        this.cumulative = cumulative;
+        this.samples = samples;
+    }
+
+    /**
+     * Build line index without sampled offsets.
+     * @param reader dictzip reader.
+     * @return line index.
+     */
+    public static DictZipLineIndex build(final DictZipReader reader) {
+        return build(reader, 0);
+    }
+
+    /**
+     * Build line index with one parallel pass over chunks.
+     * @param reader dictzip reader.
+     * @param sampleInterval record offset of every N-th line in a chunk, 0 for none.
+     * @return line index.
+     */
+    public static DictZipLineIndex build(final DictZipReader reader, final int sampleInterval) {
+        if (sampleInterval < 0) {
+            throw new IllegalArgumentException("Sample interval is minus.");
+        }
+        int count = reader.getChunkCount();
+        int[] counts = new int[count];
+        int[][] samples = new int[count][];
+        boolean[] lastByteIsLineFeed = new boolean[1];
+        reader.chunks().forEach(chunk -> {
+            ByteBuffer data = chunk.getData();
+            int n = 0;
+            int[] sampled = new int[sampleInterval > 0 ? data.remaining() / sampleInterval + 1 : 0];
+            int s = 0;
+            int limit = data.limit();
+            for (int i = data.position(); i < limit; i++) {
+                if (data.get(i) == '\n') {
+                    n++;
+                    if (sampleInterval > 0 && n % sampleInterval == 0) {
+                        sampled[s++] = i + 1;
+                    }
+                }
+            }
+            counts[chunk.getIndex()] = n;
+            samples[chunk.getIndex()] = s == 0 ? EMPTY : Arrays.copyOf(sampled, s);
+            if (chunk.getIndex() == count - 1 && limit > 0) {
+                lastByteIsLineFeed[0] = data.get(limit - 1) == '\n';
+            }
+        });
+        long[] cumulative = new long[count + 1];
+        for (int i = 0; i < count; i++) {
+            cumulative[i + 1] = cumulative[i] + counts[i];
+        }
+        return new DictZipLineIndex(reader.getHeader().getChunkLength(), reader.getLength(), reader.getCrc(),
+                sampleInterval, lastByteIsLineFeed[0], cumulative, samples);
+    }
+
+    /**
+     * Read line index from sidecar file.
+     * @param path sidecar file.
+     * @return line index.
+     * @throws IOException if an I/O error has occurred or file is not a line index.
+     */
+    public static DictZipLineIndex read(final Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readUnsignedShort() != VERSION) {
+                throw new IOException("Not a dictzip line index.");
+            }
+            int chunkLength = in.readUnsignedShort();
+            int count = in.readInt();
+            long totalLength = in.readLong();
+            long crc = in.readInt() & 0xffffffffL;
+            int sampleInterval = in.readInt();
+            boolean endsWithLineFeed = in.readBoolean();
+            long[] cumulative = new long[count + 1];
+            int[][] samples = new int[count][];
+            for (int i = 0; i < count; i++) {
+                cumulative[i + 1] = cumulative[i] + in.readUnsignedShort();
+                int s = in.readUnsignedShort();
+                samples[i] = s == 0 ? EMPTY : new int[s];
+                for (int j = 0; j < s; j++) {
+                    samples[i][j] = in.readUnsignedShort();
+                }
+            }
+            return new DictZipLineIndex(chunkLength, totalLength, crc, sampleInterval, endsWithLineFeed,
+                    cumulative, samples);
+        }
+    }
+
+    /**
+     * Write line index to sidecar file.
+     * <p>
+     *     Counts and offsets are stored in unsigned short, because a chunk is smaller than 64kB.
+     * </p>
+     * @param path sidecar file.
+     * @throws IOException if an I/O error has occurred.
+     */
+    public void write(final Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeShort(chunkLength);
+            out.writeInt(samples.length);
+            out.writeLong(totalLength);
+            out.writeInt((int) crc);
+            out.writeInt(sampleInterval);
+            out.writeBoolean(endsWithLineFeed);
+            for (int i = 0; i < samples.length; i++) {
+                out.writeShort((int) (cumulative[i + 1] - cumulative[i]));
+                out.writeShort(samples[i].length);
+                for (int offset : samples[i]) {
+                    out.writeShort(offset);
+                }
+            }
+        }
+    }
+
+    /**
+     * Check whether the index is built for the dictzip data.
+     * @param length uncompressed length of dictzip data.
+     * @param crcValue CRC value in gzip trailer.
+     * @param chunkLen chunk length of dictzip data.
+     * @return true when the index is for the data.
+     */
+    public boolean matches(final long length, final long crcValue, final int chunkLen) {
+        return totalLength == length && crc == crcValue && chunkLength == chunkLen;
+    }
+
+    /**
+     * Get number of lines.
+     * <p>
+     *     Last line without terminating line feed is counted as a line.
+     * </p>
+     * @return number of lines.
+     */
+    public long getLineCount() {
+        long lf = cumulative[cumulative.length - 1];
+        if (totalLength == 0 || endsWithLineFeed) {
+            return lf;
+        }
+        return lf + 1;
+    }
+
+    /**
+     * Get sample interval.
+     * @return interval of sampled lines, 0 when no sample.
+     */
+    public int getSampleInterval() {
+        return sampleInterval;
+    }
+
+    /**
+     * Locate where to start reading for the line.
+     * <p>
+     *     Return value is a pair of uncompressed position and number of line feeds
+     *     to skip from the position to reach the beginning of the line.
+     * </p>
+     * @param line line number, starts from 0.
+     * @return array of position and number of line feeds to skip.
+     * @throws IllegalArgumentException when line number is out of range.
+     */
+    long[] locate(final long line) {
+        if (line < 0 || line >= getLineCount()) {
+            throw new IllegalArgumentException("Line number is out of range.");
+        }
+        if (line == 0) {
+            return new long[] {0, 0};
+        }
+        // find chunk i where cumulative[i] < line <= cumulative[i + 1]
+        int i = Arrays.binarySearch(cumulative, line);
+        if (i < 0) {
+            i = -i - 2;
+        } else {
+            // first chunk which reaches the count
+            while (i > 0 && cumulative[i - 1] == line) {
+                i--;
+            }
+            i--;
+        }
+        long k = line - cumulative[i];
+        long chunkStart = (long) i * chunkLength;
+        if (sampleInterval > 0 && k >= sampleInterval) {
+            int s = (int) (k / sampleInterval);
+            return new long[] {chunkStart + samples[i][s - 1], k - (long) s * sampleInterval};
+        }
+        return new long[] {chunkStart, k};
+    }
+}
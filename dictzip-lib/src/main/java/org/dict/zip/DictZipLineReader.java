@@ -0,0 +1,157 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Random access to lines of dictzip text file by line number.
+ * <p>
+ *     It seeks DictZipInputStream to a position located by DictZipLineIndex,
+ *     so only the chunks holding requested lines are decoded.
+ *     This class is not thread-safe as same as DictZipInputStream.
+ * </p>
+ * @author Hiroshi Miura
+ */
+public class DictZipLineReader implements Closeable {
+
+    private static final int BUF_LEN = 8192;
+
+    private final DictZipInputStream in;
+    private final DictZipLineIndex index;
+    private final Charset charset;
+    private final byte[] buf = new byte[BUF_LEN];
+    private int bufPos = 0;
+    private int bufLimit = 0;
+
+    /**
+     * Constructor.
+     * @param in dictzip input stream.
+     * @param index line index built for the stream.
+     * @param charset charset to decode lines, should be ASCII compatible.
+     * @throws IOException when the index does not match the stream.
+     */
+    public DictZipLineReader(final DictZipInputStream in, final DictZipLineIndex index, final Charset charset)
+            throws IOException {
+        if (!index.matches(in.getLength(), in.getCrc(), in.getChunkLength())) {
+            throw new IOException("Line index does not match dictzip file.");
+        }
+        this.in = in;
+        this.index = index;
+        this.charset = charset;
+    }
+
+    /**
+     * Get number of lines.
+     * @return number of lines.
+     */
+    public long getLineCount() {
+        return index.getLineCount();
+    }
+
+    /**
+     * Read a line.
+     * <p>
+     *     Terminating line feed and preceding CR are removed.
+     * </p>
+     * @param n line number, starts from 0.
+     * @return text of the line.
+     * @throws IOException if an I/O error has occurred.
+     * @throws IllegalArgumentException when line number is out of range.
+     */
+    public String readLine(final long n) throws IOException {
+        seekLine(n);
+        return nextLine();
+    }
+
+    /**
+     * Read consecutive lines.
+     * @param from first line number, starts from 0.
+     * @param count number of lines to read.
+     * @return list of lines, it can be shorter than count at end of file.
+     * @throws IOException if an I/O error has occurred.
+     * @throws IllegalArgumentException when line number is out of range.
+     */
+    public List<String> readLines(final long from, final int count) throws IOException {
+        if (count < 0) {
+            throw new IllegalArgumentException("count is minus.");
+        }
+        List<String> result = new ArrayList<>(count);
+        if (count == 0) {
+            return result;
+        }
+        seekLine(from);
+        long last = Math.min(index.getLineCount(), from + count);
+        for (long i = from; i < last; i++) {
+            result.add(nextLine());
+        }
+        return result;
+    }
+
+    /**
+     * Closes underlying stream.
+     * @throws IOException if an I/O error has occurred.
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void seekLine(final long n) throws IOException {
+        long[] location = index.locate(n);
+        in.seek(location[0]);
+        bufPos = 0;
+        bufLimit = 0;
+        for (long skip = location[1]; skip > 0; ) {
+            if (bufPos >= bufLimit && !fillBuffer()) {
+                return;
+            }
+            if (buf[bufPos++] == '\n') {
+                skip--;
+            }
+        }
+    }
+
+    private String nextLine() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        while (bufPos < bufLimit || fillBuffer()) {
+            int start = bufPos;
+            while (bufPos < bufLimit && buf[bufPos] != '\n') {
+                bufPos++;
+            }
+            line.write(buf, start, bufPos - start);
+            if (bufPos < bufLimit) {
+                bufPos++;
+                break;
+            }
+        }
+        byte[] bytes = line.toByteArray();
+        int len = bytes.length;
+        if (len > 0 && bytes[len - 1] == '\r') {
+            len--;
+        }
+        return new String(bytes, 0, len, charset);
+    }
+
+    private boolean fillBuffer() throws IOException {
+        int n = in.read(buf, 0, BUF_LEN);
+        if (n <= 0) {
+            bufPos = 0;
+            bufLimit = 0;
+            return false;
+        }
+        bufPos = 0;
+        bufLimit = n;
+        return true;
+    }
+}
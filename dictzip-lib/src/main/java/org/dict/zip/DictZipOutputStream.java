@@ -36,8 +36,11 @@ public class DictZipOutputStream extends FilterOutputStream {
 
     private int cindex;
     private boolean closed = false;
+    private boolean trailerWritten = false;
     private final long dataSize;
     private long wroteInChunk;
+    private long deflatedInChunk;
+    private final CRC32 chunkCrc = new CRC32();
     private final DictZipHeader header;
     private boolean usesDefaultDeflater = false;
     private static final int BUF_LEN = 58315;
@@ -110,6 +113,7 @@ public class DictZipOutputStream extends FilterOutputStream {
             throw new IllegalArgumentException("total data size <= 0");
         }
         wroteInChunk = 0;
+        deflatedInChunk = 0;
         this.def = defl;
         int outBufferSize = (int) ((inBufferSize + 12) * 1.1);
         buf = new byte[outBufferSize];
@@ -163,22 +167,121 @@ public class DictZipOutputStream extends FilterOutputStream {
         }
     }
 
+    /**
+     * Enable or disable CRC32 table of chunks in header.
+     * <p>
+     *     It should be called before writing data, because header size is changed.
+     * </p>
+     * @param enable true when store CRC32 of each chunk.
+     * @throws IOException if data is already written or I/O error occurred.
+     * @throws IllegalArgumentException when the table does not fit in header.
+     */
+    public void setChunkCRC(final boolean enable) throws IOException, IllegalArgumentException {
+        checkHeaderChangeable();
+        header.setChunkCRC(enable);
+        rewriteHeader();
+    }
+
+    /**
+     * Set interval of restart points in chunks.
+     * <p>
+     *     Deflater is flushed at every interval in a chunk, and the compressed offsets
+     *     are stored in header. DictZipInputStream#seek starts decoding from the nearest
+     *     point, so the decode window is smaller than the chunk with less loss of
+     *     compression ratio than small chunks.
+     *     It should be called before writing data, because header size is changed.
+     * </p>
+     * @param interval interval in uncompressed bytes, 0 for no restart point.
+     * @throws IOException if data is already written or I/O error occurred.
+     * @throws IllegalArgumentException when interval is out of range or points do not fit in header.
+     */
+    public void setRestartInterval(final int interval) throws IOException, IllegalArgumentException {
+        checkHeaderChangeable();
+        header.setRestartInterval(interval);
+        rewriteHeader();
+    }
+
+    /**
+     * Put an application subfield to extra field of header.
+     * <p>
+     *     It should be called before writing data, because header size is changed.
+     * </p>
+     * @param id subfield ID of two ISO-8859-1 characters.
+     * @param data content of the subfield.
+     * @throws IOException if data is already written or I/O error occurred.
+     * @throws IllegalArgumentException when ID is reserved or subfield does not fit in header.
+     * @see DictZipHeader#putSubfield(String, byte[])
+     */
+    public void putSubfield(final String id, final byte[] data) throws IOException, IllegalArgumentException {
+        checkHeaderChangeable();
+        header.putSubfield(id, data);
+        rewriteHeader();
+    }
+
+    private void checkHeaderChangeable() throws IOException {
+        if (closed) {
+            throw new IOException("Already closed!");
+        }
+        if (def.getBytesRead() > 0 || def.finished()) {
+            throw new IOException("Header cannot be changed after writing data.");
+        }
+    }
+
+    private void rewriteHeader() throws IOException {
+        RandomAccessOutputStream raout = (RandomAccessOutputStream) out;
+        raout.seek(0);
+        writeHeader(raout);
+    }
+
     /**
      * Writes next block of compressed data to the output stream.
+     * <p>
+     *     Pending input of the chunk is flushed with FULL_FLUSH, so that
+     *     the chunk can be decoded independently.
+     * </p>
      *
      * @throws IOException if an I/O error has occurred
      */
     protected void deflate() throws IOException {
-        crc.update(buf, 0, buf.length);
-        int len = def.deflate(buf, 0, buf.length, Deflater.FULL_FLUSH);
-        if (len > DictZipHeader.MAX_CHUNK_LEN) {
-            throw new IOException("Invalid size of chunk: Compressed chunked data size is larger than 64kB.");
-        }
+        fullFlush();
+        endChunk();
+    }
+
+    private void fullFlush() throws IOException {
+        int len;
+        do {
+            len = def.deflate(buf, 0, buf.length, Deflater.FULL_FLUSH);
+            writeDeflated(len);
+        } while (len == buf.length);
+    }
+
+    private void writeDeflated(final int len) throws IOException {
         if (len > 0) {
             out.write(buf, 0, len);
-            header.chunks[cindex] = len;
+            deflatedInChunk += len;
+        }
+    }
+
+    /**
+     * Record compressed size and CRC32 of the chunk to header.
+     * @throws IOException when compressed chunk is too large.
+     */
+    private void endChunk() throws IOException {
+        if (deflatedInChunk > DictZipHeader.MAX_CHUNK_LEN) {
+            throw new IOException("Invalid size of chunk: Compressed chunked data size is larger than 64kB.");
+        }
+        if (cindex < header.getChunkCount()) {
+            header.chunks[cindex] = (int) deflatedInChunk;
+            if (header.hasChunkCRC()) {
+                header.putChunkCRC(cindex, chunkCrc.getValue());
+            }
             cindex++;
+        } else if (cindex > 0) {
+            // end of stream block after the last full chunk.
+            header.chunks[cindex - 1] += (int) deflatedInChunk;
         }
+        deflatedInChunk = 0;
+        chunkCrc.reset();
     }
 
     /**
@@ -204,23 +307,34 @@ public class DictZipOutputStream extends FilterOutputStream {
         } else if (len == 0) {
             return;
         }
-        if (!def.finished()) {
-            // Deflate no more than chunkLength bytes at a time.
-            // This avoids excess copying in deflateBytes (see Deflater.c)
-            int chunkLength = header.getChunkLength();
-            int idx = 0;
-            int writeSize = Math.min(chunkLength, len);
-            while (writeSize > 0) {
-                def.setInput(b, off + idx, writeSize);
-                wroteInChunk += writeSize;
-                idx += writeSize;
-                if (wroteInChunk == chunkLength) {
-                    while (!def.needsInput()) {
-                        deflate();
-                    }
-                    wroteInChunk = 0;
+        // Deflate no more than chunkLength bytes at a time.
+        // This avoids excess copying in deflateBytes (see Deflater.c)
+        int chunkLength = header.getChunkLength();
+        int interval = header.getRestartInterval();
+        int idx = 0;
+        while (idx < len) {
+            long remaining = chunkLength - wroteInChunk;
+            if (interval > 0) {
+                remaining = Math.min(remaining, interval - wroteInChunk % interval);
+            }
+            int writeSize = (int) Math.min(remaining, len - idx);
+            def.setInput(b, off + idx, writeSize);
+            crc.update(b, off + idx, writeSize);
+            chunkCrc.update(b, off + idx, writeSize);
+            wroteInChunk += writeSize;
+            idx += writeSize;
+            if (wroteInChunk == chunkLength) {
+                deflate();
+                wroteInChunk = 0;
+            } else if (interval > 0 && wroteInChunk % interval == 0) {
+                // restart point, where decoding can start with a fresh inflater.
+                fullFlush();
+                header.putRestartOffset(cindex, (int) (wroteInChunk / interval), (int) deflatedInChunk);
+            } else {
+                // setInput() replaces pending input, so consume it before next write.
+                while (!def.needsInput()) {
+                    writeDeflated(def.deflate(buf, 0, buf.length, Deflater.NO_FLUSH));
                 }
-                writeSize = Math.min(chunkLength, len - idx);
             }
         }
     }
@@ -254,22 +368,16 @@ public class DictZipOutputStream extends FilterOutputStream {
         if (!def.finished()) {
             def.finish();
             while (!def.finished()) {
-                int len = def.deflate(buf, 0, buf.length);
-                if (def.finished() && len <= buf.length - TRAILER_SIZE) {
-                    // last deflater buffer. Fit trailer at the end
-                    writeTrailer(buf, len);
-                    len = len + TRAILER_SIZE;
-                    out.write(buf, 0, len);
-                    return;
-                }
-                if (len > 0) {
-                    out.write(buf, 0, len);
-                }
+                writeDeflated(def.deflate(buf, 0, buf.length));
             }
+            endChunk();
+        }
+        if (!trailerWritten) {
+            byte[] trailer = new byte[TRAILER_SIZE];
+            writeTrailer(trailer, 0);
+            out.write(trailer);
+            trailerWritten = true;
         }
-        byte[] trailer = new byte[TRAILER_SIZE];
-        writeTrailer(trailer, 0);
-        out.write(trailer);
     }
 
     private void writeHeader(final RandomAccessOutputStream raout) throws IOException {
@@ -0,0 +1,770 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Positional reader of dictzip file.
+ * <p>
+ *     Unlike DictZipInputStream, the reader has no cursor. Every chunk is
+ *     read with positional I/O and decoded with its own Inflater, so one
+ *     reader can be shared by many threads.
+ * </p>
+ * @author Hiroshi Miura
+ */
+public class DictZipReader implements Closeable {
+
+    private static final int TRAILER_SIZE = 8;
+    private static final int TRANSFER_BATCH = 4;
+    static final long MAX_SPAN = 4L * 1024 * 1024;
+
+    /**
+     * Chunks being decoded, shared by all readers of files with the same id.
+     */
+    private static final ConcurrentHashMap<ChunkKey, Flight> IN_FLIGHT =
+            new ConcurrentHashMap<>();
+
+    private final DictZipStorage storage;
+    private final DictZipHeader header;
+    private final long compLength;
+    private final long crcVal;
+    private final long totalLength;
+    private volatile DictZipChunkCache chunkCache;
+
+    /**
+     * Open dictzip file for positional read.
+     *
+     * @param path dictzip file.
+     * @throws IOException if an I/O error has occurred.
+     */
+    public DictZipReader(final Path path) throws IOException {
+        this(FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    /**
+     * Construct reader from opened file channel.
+     * <p>
+     *     The reader takes ownership of the channel and closes it on close(),
+     *     or when the channel is not a dictzip file.
+     * </p>
+     * @param channel file channel of dictzip file.
+     * @throws IOException if an I/O error has occurred.
+     */
+    public DictZipReader(final FileChannel channel) throws IOException {
+        this(new FileChannelStorage(channel));
+    }
+
+    /**
+     * Open dictzip file for positional read with channels drawn from pool.
+     * <p>
+     *     The reader holds no channel while idle. Each read acquires the channel
+     *     from the pool and releases it after read.
+     * </p>
+     * @param pool channel pool.
+     * @param path dictzip file.
+     * @throws IOException if an I/O error has occurred.
+     */
+    public DictZipReader(final DictZipChannelPool pool, final Path path) throws IOException {
+        this(pool.storage(path));
+    }
+
+    /**
+     * Construct reader from storage.
+     * <p>
+     *     The reader takes ownership of the storage and closes it on close(),
+     *     or when the header or trailer cannot be read.
+     * </p>
+     * @param storage storage of dictzip data.
+     * @throws IOException if an I/O error has occurred.
+     */
+    public DictZipReader(final DictZipStorage storage) throws IOException {
+        this.storage = storage;
+        try {
+            header = DictZipHeader.readHeader(new BufferedInputStream(new StorageInputStream(storage)),
+                    new CRC32());
+            compLength = storage.size();
+            if (compLength < header.getHeaderLength() + TRAILER_SIZE) {
+                throw new EOFException("Unexpected end of dictzip file.");
+            }
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            storage.readFully(compLength - TRAILER_SIZE, trailer);
+            trailer.flip();
+            crcVal = trailer.getInt() & 0xffffffffL;
+            totalLength = trailer.getInt() & 0xffffffffL;
+        } catch (IOException | RuntimeException e) {
+            try {
+                storage.close();
+            } catch (IOException ex) {
+                e.addSuppressed(ex);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Construct reader from storage and known header and trailer values.
+     * @param storage storage of dictzip data.
+     * @param header header of the file.
+     * @param compLength size of the file.
+     * @param crcVal CRC value in gzip trailer.
+     * @param totalLength uncompressed length in gzip trailer.
+     */
+    DictZipReader(final DictZipStorage storage, final DictZipHeader header, final long compLength,
+                  final long crcVal, final long totalLength) {
+        this.storage = storage;
+        this.header = header;
+        this.compLength = compLength;
+        this.crcVal = crcVal;
+        this.totalLength = totalLength;
+    }
+
+    /**
+     * Get dictzip header.
+     * @return header object.
+     */
+    public DictZipHeader getHeader() {
+        return header;
+    }
+
+    /**
+     * Return CRC value set to gzip trailer.
+     * @return CRC value.
+     */
+    public long getCrc() {
+        return crcVal;
+    }
+
+    /**
+     * Return uncompressed length set to gzip trailer.
+     * @return data length.
+     */
+    public long getLength() {
+        return totalLength;
+    }
+
+    /**
+     * Get total length of compressed data.
+     * @return total length
+     */
+    public long getCompLength() {
+        return compLength;
+    }
+
+    /**
+     * Get file id which identifies contents of the file in chunk caches.
+     * <p>
+     *     It is derived from CRC and lengths in trailer, mtime and chunk length in header,
+     *     so readers of the same file share the id regardless of its location.
+     * </p>
+     * @return file id.
+     */
+    public long getFileId() {
+        long h = crcVal;
+        h = h * 0x9e3779b97f4a7c15L + totalLength;
+        h = h * 0x9e3779b97f4a7c15L + compLength;
+        h = h * 0x9e3779b97f4a7c15L + header.getMtime();
+        h = h * 0x9e3779b97f4a7c15L + header.getChunkLength();
+        return h ^ (h >>> 29);
+    }
+
+    /**
+     * Set chunk cache.
+     * <p>
+     *     Decoded chunks are looked up in and put into the cache.
+     * </p>
+     * @param cache chunk cache, or null to disable cache.
+     */
+    public void setChunkCache(final DictZipChunkCache cache) {
+        chunkCache = cache;
+    }
+
+    /**
+     * Get chunk cache.
+     * @return chunk cache, or null when not set.
+     */
+    public DictZipChunkCache getChunkCache() {
+        return chunkCache;
+    }
+
+    /**
+     * Get number of chunks.
+     * @return number of chunks.
+     */
+    public int getChunkCount() {
+        return header.getChunkCount();
+    }
+
+    /**
+     * Get uncompressed offset where the chunk starts.
+     * @param index chunk index.
+     * @return offset in uncompressed data.
+     */
+    public long getChunkStart(final int index) {
+        return (long) index * header.getChunkLength();
+    }
+
+    /**
+     * Get uncompressed length of the chunk.
+     * @param index chunk index.
+     * @return length of decoded chunk.
+     */
+    public int getChunkDataLength(final int index) {
+        long start = getChunkStart(index);
+        return (int) Math.max(0, Math.min(header.getChunkLength(), totalLength - start));
+    }
+
+    /**
+     * Read and decode a chunk.
+     *
+     * @param index chunk index.
+     * @return buffer holds decoded data of the chunk.
+     * @throws IOException if an I/O error has occurred or the chunk is corrupt.
+     */
+    public ByteBuffer readChunk(final int index) throws IOException {
+        int len = getChunkDataLength(index);
+        byte[] data = new byte[len];
+        Inflater inflater = new Inflater(true);
+        try {
+            decodeChunk(index, inflater, data, len);
+        } finally {
+            inflater.end();
+        }
+        return ByteBuffer.wrap(data);
+    }
+
+    /**
+     * Read and decode consecutive chunks.
+     * <p>
+     *     Compressed data of the chunks is read with one positional read per contiguous run
+     *     of chunks missing in the cache.
+     * </p>
+     * @param first first chunk index.
+     * @param count number of chunks.
+     * @return buffer holds decoded data of the chunks.
+     * @throws IOException if an I/O error has occurred or a chunk is corrupt.
+     */
+    public ByteBuffer readChunks(final int first, final int count) throws IOException {
+        if (first < 0 || count < 0 || count > header.getChunkCount() - first) {
+            throw new IllegalArgumentException("Index is out of boundary.");
+        }
+        long total = 0;
+        int[] offsets = new int[count];
+        for (int i = 0; i < count; i++) {
+            offsets[i] = (int) total;
+            total += getChunkDataLength(first + i);
+        }
+        if (total > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many chunks to read at once.");
+        }
+        byte[] data = new byte[(int) total];
+        byte[][] outputs = new byte[count][];
+        Arrays.fill(outputs, data);
+        Inflater inflater = new Inflater(true);
+        try {
+            decodeChunks(first, count, inflater, outputs, offsets);
+        } finally {
+            inflater.end();
+        }
+        return ByteBuffer.wrap(data);
+    }
+
+    /**
+     * Transfer uncompressed data to the channel.
+     * <p>
+     *     Chunks are decoded into reusable buffers in batches and written with
+     *     gathering write when the target is a GatheringByteChannel.
+     *     Compressed data of a batch is read with one positional read.
+     *     Target should be a blocking channel.
+     * </p>
+     * @param position uncompressed position to start.
+     * @param count maximum number of bytes to transfer.
+     * @param target channel to write.
+     * @return number of bytes transferred, which can be less than count at end of data.
+     * @throws IOException if an I/O error has occurred or the data is corrupt.
+     */
+    public long transferTo(final long position, final long count, final WritableByteChannel target)
+            throws IOException {
+        if (position < 0 || count < 0) {
+            throw new IllegalArgumentException("position or count is minus.");
+        }
+        if (position >= totalLength || count == 0) {
+            return 0;
+        }
+        long end = count > totalLength - position ? totalLength : position + count;
+        int chunkLength = header.getChunkLength();
+        int first = (int) (position / chunkLength);
+        int last = (int) ((end - 1) / chunkLength);
+        int batch = Math.min(TRANSFER_BATCH, last - first + 1);
+        byte[][] arrays = new byte[batch][chunkLength];
+        ByteBuffer[] buffers = new ByteBuffer[batch];
+        int[] offsets = new int[batch];
+        long transferred = 0;
+        Inflater inflater = new Inflater(true);
+        try {
+            for (int i = first; i <= last; i += batch) {
+                int n = Math.min(batch, last - i + 1);
+                decodeChunks(i, n, inflater, arrays, offsets);
+                for (int j = 0; j < n; j++) {
+                    int len = getChunkDataLength(i + j);
+                    long chunkStart = getChunkStart(i + j);
+                    int from = (int) Math.max(0, position - chunkStart);
+                    int to = (int) Math.min(len, end - chunkStart);
+                    buffers[j] = ByteBuffer.wrap(arrays[j], from, to - from);
+                }
+                transferred += writeFully(target, buffers, n);
+            }
+        } finally {
+            inflater.end();
+        }
+        return transferred;
+    }
+
+    /**
+     * Return parallel stream of decoded chunks.
+     * @return stream of chunks.
+     */
+    public Stream<DictZipChunk> chunks() {
+        return StreamSupport.stream(new DictZipChunkSpliterator(this), true);
+    }
+
+    /**
+     * Return parallel stream of text lines.
+     * <p>
+     *     Lines are terminated by LF, and trailing CR is removed.
+     * </p>
+     * @param charset charset to decode lines, should be ASCII compatible.
+     * @return stream of lines with offsets.
+     */
+    public Stream<DictZipRecord> lines(final Charset charset) {
+        return StreamSupport.stream(DictZipRecordSpliterator.lines(this, charset), true);
+    }
+
+    /**
+     * Return parallel stream of text records separated by delimiter.
+     * @param delimiter record delimiter in byte sequence.
+     * @param charset charset to decode records.
+     * @return stream of records with offsets.
+     */
+    public Stream<DictZipRecord> records(final byte[] delimiter, final Charset charset) {
+        return StreamSupport.stream(new DictZipRecordSpliterator(this, delimiter, charset), true);
+    }
+
+    /**
+     * Closes the reader and underlying storage.
+     * @throws IOException if an I/O error has occurred.
+     */
+    @Override
+    public void close() throws IOException {
+        storage.close();
+    }
+
+    private ByteBuffer readCompressed(final int index) throws IOException {
+        return readSpan(index, index);
+    }
+
+    /**
+     * Read compressed data of consecutive chunks with one positional read.
+     * @param first first chunk index.
+     * @param last last chunk index.
+     * @return buffer holds compressed data from start of first chunk to end of last chunk.
+     */
+    private ByteBuffer readSpan(final int first, final int last) throws IOException {
+        long start = header.getChunkOffset(first);
+        long end = chunkEnd(last);
+        if (end < start) {
+            throw new ZipException("Corrupt dictzip header.");
+        }
+        ByteBuffer compressed = ByteBuffer.allocate((int) (end - start));
+        storage.readFully(start, compressed);
+        compressed.flip();
+        return compressed;
+    }
+
+    /**
+     * Get end position of compressed data of the chunk.
+     * @param index chunk index.
+     * @return end position in the file, exclusive.
+     */
+    long chunkEnd(final int index) {
+        if (index + 1 < header.getChunkCount()) {
+            return header.getChunkOffset(index + 1);
+        }
+        // last chunk size may not be recorded, it ends at trailer.
+        return compLength - TRAILER_SIZE;
+    }
+
+    /**
+     * Decode consecutive chunks, or copy them from chunk cache.
+     * <p>
+     *     Compressed data of each contiguous run of chunks missing in the cache is read with
+     *     one positional read, so a range spanning chunks costs one read per run.
+     *     A run ends at a chunk which other thread is decoding, and the result of that
+     *     decode is waited for, as {@link #decodeChunk} does.
+     * </p>
+     * @param first first chunk index.
+     * @param count number of chunks.
+     * @param inflater inflater to use.
+     * @param outputs arrays to store data of each chunk.
+     * @param offsets offsets in arrays.
+     * @throws IOException if an I/O error has occurred or a chunk is corrupt.
+     */
+    void decodeChunks(final int first, final int count, final Inflater inflater, final byte[][] outputs,
+                      final int[] offsets) throws IOException {
+        Flight[] flights = new Flight[count];
+        int i = 0;
+        while (i < count) {
+            if (getCached(first + i, outputs[i], offsets[i])) {
+                i++;
+                continue;
+            }
+            Flight flight = new Flight();
+            Flight current = enterFlight(first + i, flight);
+            if (current != flight) {
+                awaitFlight(current, first + i, inflater, outputs[i], offsets[i]);
+                i++;
+                continue;
+            }
+            flights[i] = flight;
+            // extend the run while chunks miss, no other thread decodes them, and span fits the limit.
+            long start = header.getChunkOffset(first + i);
+            int end = i + 1;
+            boolean hit = false;
+            try {
+                while (end < count && chunkEnd(first + end) - start <= MAX_SPAN) {
+                    hit = getCached(first + end, outputs[end], offsets[end]);
+                    if (hit) {
+                        break;
+                    }
+                    flights[end] = startFlight(first + end);
+                    if (flights[end] == null) {
+                        break;
+                    }
+                    end++;
+                }
+                ByteBuffer span = readSpan(first + i, first + end - 1);
+                decodeSpan(span, first, i, end, inflater, outputs, offsets, flights);
+            } finally {
+                abortFlights(first, i, end, flights);
+            }
+            i = hit ? end + 1 : end;
+        }
+    }
+
+    /**
+     * Decode chunks from compressed data read at once, and put them into chunk cache.
+     * <p>
+     *     Flights of decoded chunks are finished with their data. Caller should abort
+     *     the flights afterwards, in case of error.
+     * </p>
+     * @param span compressed data from start of chunk first + from, in a heap buffer.
+     * @param first chunk index of outputs[0].
+     * @param from first position in outputs to decode.
+     * @param to end position in outputs, exclusive.
+     * @param inflater inflater to use.
+     * @param outputs arrays to store data of each chunk.
+     * @param offsets offsets in arrays.
+     * @param flights flights of chunks owned by caller, or null.
+     * @throws IOException if a chunk is corrupt.
+     */
+    void decodeSpan(final ByteBuffer span, final int first, final int from, final int to, final Inflater inflater,
+                    final byte[][] outputs, final int[] offsets, final Flight[] flights) throws IOException {
+        DictZipChunkCache cache = chunkCache;
+        long fileId = getFileId();
+        long start = header.getChunkOffset(first + from);
+        for (int k = from; k < to; k++) {
+            int index = first + k;
+            int len = getChunkDataLength(index);
+            int off = (int) (header.getChunkOffset(index) - start);
+            int inputLength = (int) (chunkEnd(index) - header.getChunkOffset(index));
+            if (inputLength < 0 || off + inputLength > span.limit()) {
+                throw new ZipException("Corrupt dictzip header.");
+            }
+            inflateChunk(index, inflater, span.array(), span.arrayOffset() + off, inputLength, outputs[k],
+                    offsets[k], len);
+            if (cache != null) {
+                cache.put(fileId, index, ByteBuffer.wrap(outputs[k], offsets[k], len));
+            }
+            if (flights != null) {
+                finishFlight(index, flights[k], outputs[k], offsets[k], len);
+            }
+        }
+    }
+
+    /**
+     * Decode a chunk into the array, or copy it from chunk cache.
+     * <p>
+     *     Concurrent decodes of the same chunk are done once: the first caller decodes it,
+     *     and others wait for its result. When the first caller failed, others decode by themselves.
+     * </p>
+     * @param index chunk index.
+     * @param inflater inflater to use.
+     * @param output array to store data.
+     * @param len uncompressed length of the chunk.
+     * @throws IOException if an I/O error has occurred or the chunk is corrupt.
+     */
+    void decodeChunk(final int index, final Inflater inflater, final byte[] output, final int len)
+            throws IOException {
+        DictZipChunkCache cache = chunkCache;
+        if (getCached(index, output, 0)) {
+            return;
+        }
+        Flight flight = new Flight();
+        Flight current = enterFlight(index, flight);
+        if (current != flight) {
+            awaitFlight(current, index, inflater, output, 0);
+            return;
+        }
+        try {
+            inflateChunk(index, inflater, output, 0, len);
+            if (cache != null) {
+                cache.put(getFileId(), index, ByteBuffer.wrap(output, 0, len));
+            }
+            finishFlight(index, flight, output, 0, len);
+        } finally {
+            finishFlight(index, flight, null, 0, 0);
+        }
+    }
+
+    /**
+     * Register a flight of the chunk, or join the flight of other thread.
+     * @param index chunk index.
+     * @param flight new flight.
+     * @return the flight when registered, otherwise the flight joined.
+     */
+    Flight enterFlight(final int index, final Flight flight) {
+        return IN_FLIGHT.compute(new ChunkKey(getFileId(), index), (k, v) -> {
+            if (v == null) {
+                return flight;
+            }
+            v.waiters++;
+            return v;
+        });
+    }
+
+    /**
+     * Register a flight of the chunk unless other thread decodes it.
+     * @param index chunk index.
+     * @return new flight, or null when other thread decodes the chunk.
+     */
+    Flight startFlight(final int index) {
+        Flight flight = new Flight();
+        return IN_FLIGHT.putIfAbsent(new ChunkKey(getFileId(), index), flight) == null ? flight : null;
+    }
+
+    /**
+     * Finish the flight, and pass the data to waiters. Finishing a finished flight does nothing.
+     * @param index chunk index.
+     * @param flight flight to finish, or null.
+     * @param data decoded data, or null when the decode failed.
+     * @param offset offset of data.
+     * @param len uncompressed length of the chunk.
+     */
+    void finishFlight(final int index, final Flight flight, final byte[] data, final int offset, final int len) {
+        // no waiter joins after removal, so data is copied only when someone waits.
+        if (flight != null && IN_FLIGHT.remove(new ChunkKey(getFileId(), index), flight)) {
+            flight.result.complete(data != null && flight.waiters > 0
+                    ? Arrays.copyOfRange(data, offset, offset + len) : null);
+        }
+    }
+
+    /**
+     * Finish flights which are not finished yet as failed, so waiters decode by themselves.
+     * @param first chunk index of flights[0].
+     * @param from first position in flights.
+     * @param to end position in flights, exclusive.
+     * @param flights flights, or null.
+     */
+    void abortFlights(final int first, final int from, final int to, final Flight[] flights) {
+        if (flights == null) {
+            return;
+        }
+        for (int k = from; k < to; k++) {
+            finishFlight(first + k, flights[k], null, 0, 0);
+        }
+    }
+
+    /**
+     * Copy the chunk decoded by other thread, or decode it when that decode failed.
+     */
+    private void awaitFlight(final Flight flight, final int index, final Inflater inflater, final byte[] output,
+                             final int offset) throws IOException {
+        byte[] data = flight.await();
+        int len = getChunkDataLength(index);
+        if (data != null) {
+            System.arraycopy(data, 0, output, offset, len);
+        } else {
+            inflateChunk(index, inflater, output, offset, len);
+        }
+    }
+
+    private boolean getCached(final int index, final byte[] output, final int offset) {
+        DictZipChunkCache cache = chunkCache;
+        return cache != null && cache.get(getFileId(), index,
+                ByteBuffer.wrap(output, offset, getChunkDataLength(index)));
+    }
+
+    /**
+     * Get number of threads waiting for the decode of the chunk in progress, for tests.
+     * @param fileId file id.
+     * @param index chunk index.
+     * @return number of waiters, or -1 when the chunk is not being decoded.
+     */
+    static int getFlightWaiters(final long fileId, final int index) {
+        int[] waiters = {-1};
+        IN_FLIGHT.computeIfPresent(new ChunkKey(fileId, index), (k, v) -> {
+            waiters[0] = v.waiters;
+            return v;
+        });
+        return waiters[0];
+    }
+
+    private void inflateChunk(final int index, final Inflater inflater, final byte[] output, final int offset,
+                              final int len) throws IOException {
+        ByteBuffer compressed = readCompressed(index);
+        inflateChunk(index, inflater, compressed.array(), 0, compressed.limit(), output, offset, len);
+    }
+
+    private void inflateChunk(final int index, final Inflater inflater, final byte[] input, final int inputOffset,
+                              final int inputLength, final byte[] output, final int outputOffset, final int len)
+            throws IOException {
+        inflater.reset();
+        inflate(inflater, input, inputOffset, inputLength, output, outputOffset, len);
+        if (header.hasChunkCRC()) {
+            CRC32 chunkCrc = new CRC32();
+            chunkCrc.update(output, outputOffset, len);
+            if (chunkCrc.getValue() != header.getChunkCRC(index)) {
+                throw new ZipException("Corrupt chunk: CRC mismatch at chunk " + index);
+            }
+        }
+    }
+
+    private static void inflate(final Inflater inflater, final byte[] input, final int inputOffset,
+                                final int inputLength, final byte[] output, final int outputOffset,
+                                final int outputLength) throws IOException {
+        try {
+            inflater.setInput(input, inputOffset, inputLength);
+            int total = 0;
+            while (total < outputLength) {
+                int n = inflater.inflate(output, outputOffset + total, outputLength - total);
+                if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                total += n;
+            }
+            if (total < outputLength) {
+                throw new EOFException("Unexpected end of chunk data.");
+            }
+        } catch (DataFormatException e) {
+            throw new ZipException(e.getMessage());
+        }
+    }
+
+    private static long writeFully(final WritableByteChannel target, final ByteBuffer[] buffers, final int n)
+            throws IOException {
+        long written = 0;
+        if (target instanceof GatheringByteChannel) {
+            GatheringByteChannel gathering = (GatheringByteChannel) target;
+            while (buffers[n - 1].hasRemaining()) {
+                written += gathering.write(buffers, 0, n);
+            }
+        } else {
+            for (int j = 0; j < n; j++) {
+                while (buffers[j].hasRemaining()) {
+                    written += target.write(buffers[j]);
+                }
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Decode of a chunk in progress.
+     */
+    static final class Flight {
+        private final CompletableFuture<byte[]> result = new CompletableFuture<>();
+        // guarded by the map entry.
+        private int waiters = 0;
+
+        /**
+         * Get future of decoded data, which is null when the decode failed.
+         * @return future of data.
+         */
+        CompletableFuture<byte[]> getResult() {
+            return result;
+        }
+
+        /**
+         * Wait for decode by other thread.
+         * @return decoded data, or null when the decode failed.
+         */
+        private byte[] await() throws IOException {
+            try {
+                return result.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for chunk decode.");
+            } catch (ExecutionException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * InputStream with positional read of storage.
+     */
+    private static final class StorageInputStream extends InputStream {
+        private final DictZipStorage storage;
+        private long pos = 0;
+
+        StorageInputStream(final DictZipStorage storage) {
+            this.storage = storage;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == 1 ? b[0] & 0xff : -1;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            int n = storage.read(pos, ByteBuffer.wrap(b, off, len));
+            if (n > 0) {
+                pos += n;
+            }
+            return n;
+        }
+    }
+}
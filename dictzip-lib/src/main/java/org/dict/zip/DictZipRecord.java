@@ -0,0 +1,61 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+/**
+ * Text record of dictzip file with its uncompressed offset.
+ *
+ * @author Hiroshi Miura
+ */
+public final class DictZipRecord {
+
+    private final long offset;
+    private final int length;
+    private final String text;
+
+    /**
+     * Constructor.
+     * @param offset offset of the record in uncompressed data.
+     * @param length length of the record in byte, without delimiter.
+     * @param text decoded text of the record.
+     */
+    public DictZipRecord(final long offset, final int length, final String text) {
+        this.offset = offset;
+        this.length = length;
+        this.text = text;
+    }
+
+    /**
+     * Get offset of the record in uncompressed data.
+     * @return offset in byte.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Get length of the record in byte, without delimiter.
+     * @return length in byte.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Get text of the record.
+     * @return decoded text.
+     */
+    public String getText() {
+        return text;
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
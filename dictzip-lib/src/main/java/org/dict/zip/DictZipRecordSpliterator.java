@@ -0,0 +1,241 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over delimited text records of dictzip file.
+ * <p>
+ *     It splits on ranges of chunk index like DictZipChunkSpliterator.
+ *     A split owns records which start after the first delimiter found at
+ *     or beyond its first byte, and reads into following chunks to complete
+ *     its last record. Records are stitched as bytes before decoding, so
+ *     multibyte characters split across chunks are decoded correctly.
+ * </p>
+ * <p>
+ *     Delimiter is matched as a byte sequence, so charset should encode it
+ *     in a byte aligned form, such as ASCII compatible charsets.
+ * </p>
+ * @author Hiroshi Miura
+ */
+public class DictZipRecordSpliterator implements Spliterator<DictZipRecord> {
+
+    private final DictZipReader reader;
+    private final byte[] delimiter;
+    private final Charset charset;
+    private final boolean trimCarriageReturn;
+    private int index;
+    private final int fence;
+
+    private final Deque<DictZipRecord> queue = new ArrayDeque<>();
+    private boolean started = false;
+    private boolean skipping;
+    private boolean done = false;
+    private long end;
+    private byte[] buf = new byte[0];
+    private int limit = 0;
+    private long bufStart;
+    private long recordStart;
+    private long scanPos;
+
+    /**
+     * Spliterator over records of whole file.
+     * @param reader dictzip reader.
+     * @param delimiter record delimiter in byte sequence.
+     * @param charset charset to decode records.
+     * @throws IllegalArgumentException when delimiter is empty or overlaps itself.
+     */
+    public DictZipRecordSpliterator(final DictZipReader reader, final byte[] delimiter, final Charset charset) {
+        this(reader, delimiter, charset, false, 0, reader.getChunkCount());
+    }
+
+    DictZipRecordSpliterator(final DictZipReader reader, final byte[] delimiter, final Charset charset,
+                             final boolean trimCarriageReturn, final int origin, final int fence) {
+        if (delimiter == null || charset == null) {
+            throw new NullPointerException();
+        }
+        if (delimiter.length == 0) {
+            throw new IllegalArgumentException("Delimiter is empty.");
+        }
+        for (int k = 1; k < delimiter.length; k++) {
+            if (Arrays.equals(Arrays.copyOfRange(delimiter, 0, delimiter.length - k),
+                    Arrays.copyOfRange(delimiter, k, delimiter.length))) {
+                throw new IllegalArgumentException("Delimiter should not overlap itself.");
+            }
+        }
+        this.reader = reader;
+        this.delimiter = delimiter;
+        this.charset = charset;
+        this.trimCarriageReturn = trimCarriageReturn;
+        this.index = origin;
+        this.fence = fence;
+    }
+
+    /**
+     * Spliterator over lines of whole file.
+     * <p>
+     *     Lines are terminated by LF, and trailing CR is removed.
+     * </p>
+     * @param reader dictzip reader.
+     * @param charset charset to decode lines.
+     * @return spliterator.
+     * @throws IllegalArgumentException when charset does not encode LF as a single byte.
+     */
+    public static DictZipRecordSpliterator lines(final DictZipReader reader, final Charset charset) {
+        byte[] lf = "\n".getBytes(charset);
+        if (lf.length != 1 || lf[0] != '\n') {
+            throw new IllegalArgumentException("Charset is not compatible with ASCII line feed.");
+        }
+        return new DictZipRecordSpliterator(reader, lf, charset, true, 0, reader.getChunkCount());
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super DictZipRecord> action) {
+        if (action == null) {
+            throw new NullPointerException();
+        }
+        while (queue.isEmpty()) {
+            if (done) {
+                return false;
+            }
+            fill();
+        }
+        action.accept(queue.poll());
+        return true;
+    }
+
+    @Override
+    public Spliterator<DictZipRecord> trySplit() {
+        if (started) {
+            return null;
+        }
+        int lo = index;
+        int mid = (lo + fence) >>> 1;
+        if (lo >= mid) {
+            return null;
+        }
+        index = mid;
+        return new DictZipRecordSpliterator(reader, delimiter, charset, trimCarriageReturn, lo, mid);
+    }
+
+    @Override
+    public long estimateSize() {
+        return (long) (fence - index) * reader.getHeader().getChunkLength();
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | IMMUTABLE;
+    }
+
+    private void fill() {
+        if (!started) {
+            started = true;
+            end = reader.getChunkStart(fence);
+            bufStart = reader.getChunkStart(index);
+            recordStart = bufStart;
+            scanPos = bufStart;
+            skipping = index > 0;
+            if (index >= fence) {
+                done = true;
+                return;
+            }
+        }
+        if (index >= reader.getChunkCount()) {
+            long dataEnd = bufStart + limit;
+            if (!skipping && recordStart < dataEnd) {
+                emit(recordStart, dataEnd);
+            }
+            done = true;
+            return;
+        }
+        try {
+            append(reader.readChunk(index++));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        scan();
+    }
+
+    private void scan() {
+        long last = bufStart + limit - delimiter.length;
+        while (scanPos <= last) {
+            if (skipping && scanPos >= end) {
+                done = true;
+                return;
+            }
+            if (!matches((int) (scanPos - bufStart))) {
+                scanPos++;
+                continue;
+            }
+            long d = scanPos;
+            if (skipping) {
+                skipping = false;
+            } else {
+                emit(recordStart, d);
+                if (d >= end) {
+                    done = true;
+                    return;
+                }
+            }
+            recordStart = d + delimiter.length;
+            scanPos = recordStart;
+        }
+        if (skipping && scanPos >= end) {
+            done = true;
+            return;
+        }
+        compact();
+    }
+
+    private boolean matches(final int pos) {
+        for (int k = 0; k < delimiter.length; k++) {
+            if (buf[pos + k] != delimiter[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void emit(final long start, final long stop) {
+        int off = (int) (start - bufStart);
+        int len = (int) (stop - start);
+        if (trimCarriageReturn && len > 0 && buf[off + len - 1] == '\r') {
+            len--;
+        }
+        queue.add(new DictZipRecord(start, len, new String(buf, off, len, charset)));
+    }
+
+    private void append(final ByteBuffer data) {
+        int size = data.remaining();
+        if (limit + size > buf.length) {
+            buf = Arrays.copyOf(buf, limit + size);
+        }
+        data.get(buf, limit, size);
+        limit += size;
+    }
+
+    private void compact() {
+        long keepFrom = skipping ? scanPos : recordStart;
+        int n = (int) (keepFrom - bufStart);
+        if (n > 0) {
+            System.arraycopy(buf, n, buf, 0, limit - n);
+            limit -= n;
+            bufStart = keepFrom;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Positional read storage of dictzip data.
+ * <p>
+ *     Readers of the library access compressed data only through this interface,
+ *     so dictzip data can be held in a file, a mapped region, memory or
+ *     a custom block store. Implementations should allow concurrent reads.
+ * </p>
+ * @author Hiroshi Miura
+ */
+public interface DictZipStorage extends Closeable {
+
+    /**
+     * Get size of the storage.
+     * @return size in bytes.
+     * @throws IOException if an I/O error has occurred.
+     */
+    long size() throws IOException;
+
+    /**
+     * Read bytes from the position into the buffer.
+     * <p>
+     *     It does not change any position of the storage, and can read less than
+     *     remaining of the buffer.
+     * </p>
+     * @param position position to read.
+     * @param dst buffer to store data.
+     * @return number of bytes read, or -1 when position is at or beyond end of storage.
+     * @throws IOException if an I/O error has occurred.
+     */
+    int read(long position, ByteBuffer dst) throws IOException;
+
+    /**
+     * Read bytes until the buffer is filled.
+     * @param position position to read.
+     * @param dst buffer to store data.
+     * @throws IOException if an I/O error has occurred or reached end of storage.
+     */
+    default void readFully(final long position, final ByteBuffer dst) throws IOException {
+        long pos = position;
+        while (dst.hasRemaining()) {
+            int n = read(pos, dst);
+            if (n < 0) {
+                throw new EOFException();
+            }
+            pos += n;
+        }
+    }
+}
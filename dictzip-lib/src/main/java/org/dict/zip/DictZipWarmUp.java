@@ -0,0 +1,180 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Background warm-up of chunk caches by replaying an access profile.
+ * <p>
+ *     Chunks of the profile are decoded by readers in order of hotness, by parallel
+ *     workers on the executor, and stored to the chunk cache set on each reader.
+ *     Decoding is throttled to the given rate so the warm-up can run while the service
+ *     takes traffic. Entries of files not given, or of chunks out of range, are skipped.
+ * </p>
+ * @author Hiroshi Miura
+ */
+public final class DictZipWarmUp {
+
+    private final DictZipAccessProfile profile;
+    private final Map<Long, DictZipReader> readers;
+    private final long intervalNanos;
+    private final AtomicInteger cursor = new AtomicInteger();
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger running;
+    private final AtomicLong nextTime;
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+    private volatile boolean cancelled = false;
+
+    private DictZipWarmUp(final DictZipAccessProfile profile, final Collection<DictZipReader> readers,
+                          final int parallelism, final double chunksPerSecond) {
+        this.profile = profile;
+        this.readers = new HashMap<>();
+        for (DictZipReader reader : readers) {
+            this.readers.put(reader.getFileId(), reader);
+        }
+        intervalNanos = chunksPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / chunksPerSecond) : 0;
+        running = new AtomicInteger(parallelism);
+        nextTime = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Start warm-up.
+     * @param profile access profile to replay.
+     * @param readers readers of files in the profile, with chunk cache set.
+     * @param executor executor to run workers.
+     * @param parallelism number of workers.
+     * @param chunksPerSecond maximum chunks decoded per second, or 0 for no limit.
+     * @return warm-up object to watch progress.
+     */
+    public static DictZipWarmUp start(final DictZipAccessProfile profile, final Collection<DictZipReader> readers,
+                                      final Executor executor, final int parallelism,
+                                      final double chunksPerSecond) {
+        if (parallelism <= 0 || chunksPerSecond < 0) {
+            throw new IllegalArgumentException("Invalid parallelism or rate.");
+        }
+        DictZipWarmUp warmUp = new DictZipWarmUp(profile, readers, parallelism, chunksPerSecond);
+        for (int i = 0; i < parallelism; i++) {
+            executor.execute(warmUp::work);
+        }
+        return warmUp;
+    }
+
+    /**
+     * Get number of chunks in the profile.
+     * @return total count.
+     */
+    public int getTotal() {
+        return profile.size();
+    }
+
+    /**
+     * Get number of chunks decoded.
+     * @return completed count.
+     */
+    public int getCompleted() {
+        return completed.get();
+    }
+
+    /**
+     * Get number of entries skipped because no reader or no such chunk.
+     * @return skipped count.
+     */
+    public int getSkipped() {
+        return skipped.get();
+    }
+
+    /**
+     * Get number of chunks failed to decode.
+     * @return failed count.
+     */
+    public int getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * Get ratio of processed entries.
+     * @return progress between 0 and 1.
+     */
+    public double getProgress() {
+        int total = profile.size();
+        return total == 0 ? 1 : (double) (completed.get() + skipped.get() + failed.get()) / total;
+    }
+
+    /**
+     * Check whether all workers finished.
+     * @return true when done or cancelled.
+     */
+    public boolean isDone() {
+        return future.isDone();
+    }
+
+    /**
+     * Stop warm-up. Chunks being decoded are completed.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Get future which completes when all workers finished.
+     * @return future.
+     */
+    public CompletableFuture<Void> getFuture() {
+        return future;
+    }
+
+    private void work() {
+        try {
+            int n;
+            while (!cancelled && (n = cursor.getAndIncrement()) < profile.size()) {
+                DictZipReader reader = readers.get(profile.getFileId(n));
+                int index = profile.getIndex(n);
+                if (reader == null || index < 0 || index >= reader.getChunkCount()) {
+                    skipped.incrementAndGet();
+                    continue;
+                }
+                throttle();
+                try {
+                    reader.readChunk(index);
+                    completed.incrementAndGet();
+                } catch (IOException | RuntimeException e) {
+                    failed.incrementAndGet();
+                }
+            }
+        } finally {
+            if (running.decrementAndGet() == 0) {
+                future.complete(null);
+            }
+        }
+    }
+
+    private void throttle() {
+        if (intervalNanos == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        long slot = nextTime.getAndAccumulate(now, (prev, t) -> Math.max(prev, t) + intervalNanos);
+        long wait = slot - now;
+        while (wait > 0 && !cancelled) {
+            LockSupport.parkNanos(wait);
+            wait = slot - System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Storage for bulk scan which bypasses the page cache.
+ * <p>
+ *     The file is opened with ExtendedOpenOption.DIRECT when the runtime and file system
+ *     support it, and read in large windows into a direct buffer aligned to the block size
+ *     of the file store. So verification or export of whole files does not evict hot data
+ *     of other readers from the page cache. Otherwise it falls back to normal read, and
+ *     isDirect() returns false. Reads are serialized, it is intended for a single scanner.
+ * </p>
+ * @author Hiroshi Miura
+ */
+public final class DirectIOStorage implements DictZipStorage {
+
+    private static final int DEFAULT_BLOCK_SIZE = 4096;
+    private static final int DEFAULT_WINDOW = 1024 * 1024;
+    private static final OpenOption DIRECT;
+    private static final MethodHandle ALIGNED_SLICE;
+    private static final MethodHandle BLOCK_SIZE;
+
+    static {
+        OpenOption direct = null;
+        MethodHandle alignedSlice = null;
+        MethodHandle blockSize = null;
+        try {
+            // available since Java 10.
+            Class<?> options = Class.forName("com.sun.nio.file.ExtendedOpenOption");
+            direct = (OpenOption) options.getField("DIRECT").get(null);
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            alignedSlice = lookup.findVirtual(ByteBuffer.class, "alignedSlice",
+                    MethodType.methodType(ByteBuffer.class, int.class));
+            blockSize = lookup.findVirtual(FileStore.class, "getBlockSize", MethodType.methodType(long.class));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            direct = null;
+        }
+        DIRECT = direct;
+        ALIGNED_SLICE = alignedSlice;
+        BLOCK_SIZE = blockSize;
+    }
+
+    private final FileChannel channel;
+    private final boolean direct;
+    private final int blockSize;
+    private final long size;
+    private final ByteBuffer window;
+    private final int windowSize;
+    private long windowStart = -1;
+    private int windowLength = 0;
+    private long readCount = 0;
+    private long readBytes = 0;
+    private long readNanos = 0;
+
+    private DirectIOStorage(final FileChannel channel, final boolean direct, final int blockSize,
+                            final int windowSize) throws IOException {
+        this.channel = channel;
+        this.direct = direct;
+        this.blockSize = blockSize;
+        size = channel.size();
+        this.windowSize = (windowSize + blockSize - 1) / blockSize * blockSize;
+        if (direct) {
+            window = alignedSlice(ByteBuffer.allocateDirect(this.windowSize + blockSize), blockSize);
+        } else {
+            window = ByteBuffer.allocateDirect(this.windowSize);
+        }
+    }
+
+    /**
+     * Check whether the runtime supports direct I/O.
+     * @return true when ExtendedOpenOption.DIRECT is available.
+     */
+    public static boolean isSupported() {
+        return DIRECT != null;
+    }
+
+    /**
+     * Open file with read window of 1MB.
+     * @param path file to read.
+     * @return storage object.
+     * @throws IOException if an I/O error has occurred.
+     */
+    public static DirectIOStorage open(final Path path) throws IOException {
+        return open(path, DEFAULT_WINDOW);
+    }
+
+    /**
+     * Open file.
+     * @param path file to read.
+     * @param windowSize size of a read, rounded up to block size.
+     * @return storage object.
+     * @throws IOException if an I/O error has occurred.
+     */
+    public static DirectIOStorage open(final Path path, final int windowSize) throws IOException {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("windowSize should be positive number.");
+        }
+        if (DIRECT != null) {
+            FileChannel channel;
+            try {
+                channel = FileChannel.open(path, StandardOpenOption.READ, DIRECT);
+            } catch (IOException | UnsupportedOperationException e) {
+                // file system such as tmpfs rejects direct I/O.
+                channel = null;
+            }
+            if (channel != null) {
+                try {
+                    return new DirectIOStorage(channel, true, blockSize(path), windowSize);
+                } catch (IOException | RuntimeException e) {
+                    channel.close();
+                    throw e;
+                }
+            }
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new DirectIOStorage(channel, false, DEFAULT_BLOCK_SIZE, windowSize);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public synchronized int read(final long position, final ByteBuffer dst) throws IOException {
+        if (position < 0) {
+            throw new IllegalArgumentException("Index is out of boundary.");
+        }
+        if (position >= size) {
+            return -1;
+        }
+        if (!dst.hasRemaining()) {
+            return 0;
+        }
+        if (position < windowStart || position >= windowStart + windowLength) {
+            fill(position / blockSize * blockSize);
+        }
+        int off = (int) (position - windowStart);
+        int n = Math.min(dst.remaining(), windowLength - off);
+        ByteBuffer src = window.duplicate();
+        src.position(off);
+        src.limit(off + n);
+        dst.put(src);
+        return n;
+    }
+
+    /**
+     * Check whether the file is read with direct I/O.
+     * @return true when page cache is bypassed.
+     */
+    public boolean isDirect() {
+        return direct;
+    }
+
+    /**
+     * Get number of reads from the file.
+     * @return read count.
+     */
+    public synchronized long getReadCount() {
+        return readCount;
+    }
+
+    /**
+     * Get number of bytes read from the file.
+     * @return bytes read.
+     */
+    public synchronized long getReadBytes() {
+        return readBytes;
+    }
+
+    /**
+     * Get number of bytes which did not go through the page cache.
+     * @return bytes read with direct I/O, or 0 when direct I/O is not used.
+     */
+    public synchronized long getBypassedBytes() {
+        return direct ? readBytes : 0;
+    }
+
+    /**
+     * Get throughput of reads from the file.
+     * @return bytes per second, or 0 when nothing is read.
+     */
+    public synchronized double getThroughput() {
+        return readNanos == 0 ? 0 : readBytes * 1e9 / readNanos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void fill(final long start) throws IOException {
+        long begin = System.nanoTime();
+        window.clear();
+        window.limit(windowSize);
+        while (window.hasRemaining() && start + window.position() < size) {
+            int n = channel.read(window, start + window.position());
+            if (n <= 0) {
+                break;
+            }
+        }
+        windowStart = start;
+        windowLength = window.position();
+        readCount++;
+        readBytes += windowLength;
+        readNanos += System.nanoTime() - begin;
+    }
+
+    private static int blockSize(final Path path) {
+        try {
+            FileStore store = Files.getFileStore(path);
+            long value = (long) BLOCK_SIZE.invoke(store);
+            return value > 0 && value <= DEFAULT_WINDOW ? (int) value : DEFAULT_BLOCK_SIZE;
+        } catch (Throwable t) {
+            return DEFAULT_BLOCK_SIZE;
+        }
+    }
+
+    private static ByteBuffer alignedSlice(final ByteBuffer buffer, final int alignment) {
+        try {
+            return (ByteBuffer) ALIGNED_SLICE.invoke(buffer, alignment);
+        } catch (Throwable t) {
+            throw new IllegalStateException("Cannot align buffer.", t);
+        }
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent chunk cache on a local memory mapped file.
+ * <p>
+ *     The cache file has fixed number of slots, and a chunk is stored in one of 4 slots
+ *     of a set selected by hash of file id and chunk index, replacing the oldest one.
+ *     The cache survives restart of process. Entries are identified by file id, which is
+ *     derived from size, mtime and CRC of dictzip file, so entries of a changed file are
+ *     never returned. Data of each slot is verified with its CRC on read, so a slot torn
+ *     by crash is ignored. Put the cache file on fast local storage such as tmpfs or NVMe.
+ * </p>
+ * @author Hiroshi Miura
+ */
+public final class DiskChunkCache implements DictZipChunkCache, Closeable {
+
+    private static final int MAGIC = 0x445a4343;  // "DZCC"
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_LEN = 64;
+    private static final int SLOT_HEADER_LEN = 32;
+    private static final int DEFAULT_SLOT_SIZE = 65536;
+    private static final int WAYS = 4;
+    private static final int LOCKS = 64;
+    private static final long SEGMENT_LIMIT = 1L << 30;
+
+    // slot header fields
+    private static final int FILE_ID = 0;
+    private static final int INDEX = 8;
+    private static final int LENGTH = 12;
+    private static final int CRC = 16;
+    private static final int STAMP = 20;
+    private static final int STATE = 24;
+    private static final int VALID = 1;
+
+    private final FileChannel channel;
+    private final int slotSize;
+    private final int slotBytes;
+    private final int setCount;
+    private final int slotsPerSegment;
+    private final MappedByteBuffer fileHeader;
+    private final MappedByteBuffer[] segments;
+    private final Object[] locks = new Object[LOCKS];
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private int stamp;
+
+    private DiskChunkCache(final FileChannel channel, final int slotSize, final int slotCount) throws IOException {
+        this.channel = channel;
+        this.slotSize = slotSize;
+        slotBytes = SLOT_HEADER_LEN + slotSize;
+        setCount = slotCount / WAYS;
+        slotsPerSegment = (int) (SEGMENT_LIMIT / slotBytes);
+        int totalSlots = setCount * WAYS;
+        long size = FILE_HEADER_LEN + (long) totalSlots * slotBytes;
+        boolean valid = channel.size() == size;
+        fileHeader = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_HEADER_LEN);
+        if (valid) {
+            valid = fileHeader.getInt(0) == MAGIC && fileHeader.getShort(4) == VERSION
+                    && fileHeader.getInt(8) == slotSize && fileHeader.getInt(12) == totalSlots;
+        }
+        if (!valid) {
+            // create new cache, old entries are discarded.
+            channel.truncate(FILE_HEADER_LEN);
+            fileHeader.putInt(0, 0);
+            fileHeader.force();
+            channel.write(ByteBuffer.allocate(1), size - 1);
+        }
+        int count = (totalSlots + slotsPerSegment - 1) / slotsPerSegment;
+        segments = new MappedByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long start = FILE_HEADER_LEN + (long) i * slotsPerSegment * slotBytes;
+            int slots = Math.min(slotsPerSegment, totalSlots - i * slotsPerSegment);
+            segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, start, (long) slots * slotBytes);
+        }
+        if (!valid) {
+            // file is extended with zero, so all slots are empty.
+            fileHeader.putShort(4, (short) VERSION);
+            fileHeader.putInt(8, slotSize);
+            fileHeader.putInt(12, totalSlots);
+            fileHeader.putInt(16, 0);
+            force();
+            fileHeader.putInt(0, MAGIC);
+            fileHeader.force();
+        }
+        stamp = fileHeader.getInt(16);
+        for (int i = 0; i < LOCKS; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Open or create cache file with slot size of 64KB.
+     * @param path path of cache file.
+     * @param capacity capacity of data in bytes.
+     * @return cache object.
+     * @throws IOException if an I/O error has occurred.
+     */
+    public static DiskChunkCache open(final Path path, final long capacity) throws IOException {
+        return open(path, capacity, DEFAULT_SLOT_SIZE);
+    }
+
+    /**
+     * Open or create cache file.
+     * <p>
+     *     When existing file has other capacity or slot size, it is recreated.
+     * </p>
+     * @param path path of cache file.
+     * @param capacity capacity of data in bytes.
+     * @param slotSize size of a slot, chunks longer than it are not cached.
+     * @return cache object.
+     * @throws IOException if an I/O error has occurred.
+     */
+    public static DiskChunkCache open(final Path path, final long capacity, final int slotSize) throws IOException {
+        if (slotSize <= 0 || slotSize > SEGMENT_LIMIT - SLOT_HEADER_LEN || capacity < (long) slotSize * WAYS) {
+            throw new IllegalArgumentException("capacity should hold at least " + WAYS + " slots.");
+        }
+        long slots = capacity / slotSize;
+        if (slots > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("capacity is too large.");
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            return new DiskChunkCache(channel, slotSize, (int) slots);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean get(final long fileId, final int index, final ByteBuffer dst) {
+        int set = setOf(fileId, index);
+        synchronized (locks[set % LOCKS]) {
+            for (int way = 0; way < WAYS; way++) {
+                ByteBuffer slot = slotBuffer(set * WAYS + way);
+                if (matches(slot, fileId, index)) {
+                    int length = slot.getInt(LENGTH);
+                    if (length > dst.remaining()) {
+                        break;
+                    }
+                    ByteBuffer data = slot.duplicate();
+                    data.position(SLOT_HEADER_LEN);
+                    data.limit(SLOT_HEADER_LEN + length);
+                    CRC32 crc = new CRC32();
+                    crc.update(data.duplicate());
+                    if ((int) crc.getValue() != slot.getInt(CRC)) {
+                        slot.putInt(STATE, 0);
+                        break;
+                    }
+                    dst.put(data);
+                    hitCount.incrementAndGet();
+                    return true;
+                }
+            }
+        }
+        missCount.incrementAndGet();
+        return false;
+    }
+
+    @Override
+    public void put(final long fileId, final int index, final ByteBuffer data) {
+        int length = data.remaining();
+        if (length > slotSize) {
+            return;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data.duplicate());
+        int set = setOf(fileId, index);
+        synchronized (locks[set % LOCKS]) {
+            ByteBuffer victim = null;
+            for (int way = 0; way < WAYS; way++) {
+                ByteBuffer slot = slotBuffer(set * WAYS + way);
+                if (matches(slot, fileId, index)) {
+                    return;
+                }
+                if (victim == null) {
+                    victim = slot;
+                } else if (victim.getInt(STATE) == VALID && (slot.getInt(STATE) != VALID
+                        || slot.getInt(STAMP) - victim.getInt(STAMP) < 0)) {
+                    victim = slot;
+                }
+            }
+            // invalidate slot before overwriting data, so a crash does not leave a torn entry valid.
+            victim.putInt(STATE, 0);
+            ByteBuffer target = victim.duplicate();
+            target.position(SLOT_HEADER_LEN);
+            target.put(data.duplicate());
+            victim.putLong(FILE_ID, fileId);
+            victim.putInt(INDEX, index);
+            victim.putInt(LENGTH, length);
+            victim.putInt(CRC, (int) crc.getValue());
+            victim.putInt(STAMP, nextStamp());
+            victim.putInt(STATE, VALID);
+        }
+    }
+
+    /**
+     * Write cached data to the file.
+     */
+    public void force() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    /**
+     * Get number of hits.
+     * @return hit count.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Get number of misses.
+     * @return miss count.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Get capacity of data.
+     * @return capacity in bytes.
+     */
+    public long getCapacity() {
+        return (long) setCount * WAYS * slotSize;
+    }
+
+    /**
+     * Write data and close the cache file.
+     * @throws IOException if an I/O error has occurred.
+     */
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private synchronized int nextStamp() {
+        fileHeader.putInt(16, ++stamp);
+        return stamp;
+    }
+
+    private static boolean matches(final ByteBuffer slot, final long fileId, final int index) {
+        return slot.getInt(STATE) == VALID && slot.getLong(FILE_ID) == fileId && slot.getInt(INDEX) == index;
+    }
+
+    private int setOf(final long fileId, final int index) {
+        return (new ChunkKey(fileId, index).hashCode() & 0x7fffffff) % setCount;
+    }
+
+    private ByteBuffer slotBuffer(final int slot) {
+        ByteBuffer buf = segments[slot / slotsPerSegment].duplicate();
+        int pos = (slot % slotsPerSegment) * slotBytes;
+        buf.position(pos);
+        buf.limit(pos + slotBytes);
+        return buf.slice();
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Storage with positional read of file channel.
+ * @author Hiroshi Miura
+ */
+public class FileChannelStorage implements DictZipStorage {
+
+    private final FileChannel channel;
+
+    /**
+     * Constructor.
+     * <p>
+     *     The storage takes ownership of the channel and closes it on close().
+     * </p>
+     * @param channel file channel.
+     */
+    public FileChannelStorage(final FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Open file as storage.
+     * @param path file to read.
+     * @return storage object.
+     * @throws IOException if an I/O error has occurred.
+     */
+    public static FileChannelStorage open(final Path path) throws IOException {
+        return new FileChannelStorage(FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    /**
+     * Get underlying file channel.
+     * @return file channel.
+     */
+    public FileChannel getChannel() {
+        return channel;
+    }
+
+    @Override
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    @Override
+    public int read(final long position, final ByteBuffer dst) throws IOException {
+        return channel.read(dst, position);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
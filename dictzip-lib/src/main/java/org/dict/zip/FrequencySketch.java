@@ -0,0 +1,80 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+/**
+ * Count-min sketch with 4 bit counters and aging, to estimate access frequency.
+ * <p>
+ *     When number of recorded accesses reaches ten times of width, all counters
+ *     are halved, so the estimate follows recent popularity. Not thread-safe.
+ * </p>
+ * @author Hiroshi Miura
+ */
+final class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+    private final byte[] table;
+    private final int mask;
+    private final int sampleSize;
+    private int additions = 0;
+
+    /**
+     * Constructor.
+     * @param expectedEntries expected number of entries in cache.
+     */
+    FrequencySketch(final int expectedEntries) {
+        int width = Integer.highestOneBit(Math.max(16, Math.min(1 << 26, expectedEntries)) * 2 - 1);
+        table = new byte[width * DEPTH];
+        mask = width - 1;
+        sampleSize = width * 10;
+    }
+
+    /**
+     * Record an access.
+     * @param hash hash of the key.
+     */
+    void increment(final long hash) {
+        boolean added = false;
+        for (int i = 0; i < DEPTH; i++) {
+            int idx = indexOf(hash, i);
+            if (table[idx] < MAX_COUNT) {
+                table[idx]++;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            for (int i = 0; i < table.length; i++) {
+                table[i] >>= 1;
+            }
+            additions /= 2;
+        }
+    }
+
+    /**
+     * Estimate frequency.
+     * @param hash hash of the key.
+     * @return estimated number of recent accesses, up to 15.
+     */
+    int frequency(final long hash) {
+        int min = MAX_COUNT;
+        for (int i = 0; i < DEPTH; i++) {
+            min = Math.min(min, table[indexOf(hash, i)]);
+        }
+        return min;
+    }
+
+    private int indexOf(final long hash, final int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        h ^= h >>> 32;
+        return row * (mask + 1) + ((int) h & mask);
+    }
+}
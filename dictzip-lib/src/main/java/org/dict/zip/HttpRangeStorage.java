@@ -0,0 +1,392 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Storage of dictzip file on HTTP server which supports Range request.
+ * <p>
+ *     The header and chunk table are fetched once on construction. Then the file is
+ *     divided into blocks of header, each compressed chunk and trailer, and a read of
+ *     missing blocks is sent as one range request which covers neighbouring chunks up to
+ *     coalesce limit. Fetched blocks are kept in a LRU cache bounded by bytes.
+ *     ETag or Last-Modified of the first response is sent as If-Range on later requests,
+ *     so a replaced remote file is detected instead of mixing blocks of two versions.
+ * </p>
+ * @author Hiroshi Miura
+ */
+public class HttpRangeStorage implements DictZipStorage {
+
+    private static final int PREFIX_LEN = 65536;
+    private static final long DEFAULT_CACHE_SIZE = 16L * 1024 * 1024;
+    private static final int DEFAULT_COALESCE = 4;
+    private static final int DEFAULT_CONNECT_TIMEOUT = 10000;
+    private static final int DEFAULT_READ_TIMEOUT = 30000;
+    private static final byte[] EMPTY = new byte[0];
+
+    private final URL url;
+    private final long cacheSize;
+    private final int coalesce;
+    private final LinkedHashMap<Integer, byte[]> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong fetchedBytes = new AtomicLong();
+    private long cachedBytes = 0;
+    private volatile int connectTimeout;
+    private volatile int readTimeout;
+    private String etag;
+    private String lastModified;
+    private long size = -1;
+    private byte[] prefix;
+    private long[] boundaries;
+
+    /**
+     * Open storage with default cache size of 16MB and coalesce limit of 4 chunks.
+     * @param url URL of dictzip file.
+     * @throws IOException if an I/O error has occurred, or server does not support range request.
+     */
+    public HttpRangeStorage(final URL url) throws IOException {
+        this(url, DEFAULT_CACHE_SIZE, DEFAULT_COALESCE);
+    }
+
+    /**
+     * Open storage.
+     * @param url URL of dictzip file.
+     * @param cacheSize maximum bytes of cached blocks.
+     * @param coalesce maximum number of chunks fetched in one request.
+     * @throws IOException if an I/O error has occurred, or server does not support range request.
+     */
+    public HttpRangeStorage(final URL url, final long cacheSize, final int coalesce) throws IOException {
+        this(url, cacheSize, coalesce, DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT);
+    }
+
+    /**
+     * Open storage with timeouts.
+     * @param url URL of dictzip file.
+     * @param cacheSize maximum bytes of cached blocks.
+     * @param coalesce maximum number of chunks fetched in one request.
+     * @param connectTimeout connect timeout in milliseconds, 0 for infinite.
+     * @param readTimeout read timeout in milliseconds, 0 for infinite.
+     * @throws IOException if an I/O error has occurred, or server does not support range request.
+     */
+    public HttpRangeStorage(final URL url, final long cacheSize, final int coalesce, final int connectTimeout,
+                            final int readTimeout) throws IOException {
+        if (cacheSize < 0 || coalesce <= 0 || connectTimeout < 0 || readTimeout < 0) {
+            throw new IllegalArgumentException("Invalid cache size, coalesce limit or timeout.");
+        }
+        this.url = url;
+        this.cacheSize = cacheSize;
+        this.coalesce = coalesce;
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        prefix = fetch(0, PREFIX_LEN);
+        DictZipHeader header = DictZipHeader.readHeader(new BufferedInputStream(new PrefixInputStream()),
+                new CRC32());
+        int count = header.getChunkCount();
+        if (count == 0) {
+            boundaries = new long[] {0, size};
+        } else {
+            boundaries = new long[count + 3];
+            for (int i = 0; i < count; i++) {
+                boundaries[i + 1] = header.getChunkOffset(i);
+            }
+            boundaries[count + 1] = header.getChunkOffset(count - 1) + header.getChunkSize(count - 1);
+            boundaries[count + 2] = size;
+            for (int i = 1; i < boundaries.length; i++) {
+                if (boundaries[i] < boundaries[i - 1] || boundaries[i] > size) {
+                    throw new IOException("Corrupt dictzip header.");
+                }
+            }
+        }
+        for (int k = 0; k < boundaries.length - 1 && boundaries[k + 1] <= prefix.length; k++) {
+            putBlock(k, Arrays.copyOfRange(prefix, (int) boundaries[k], (int) boundaries[k + 1]));
+        }
+        prefix = null;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public int read(final long position, final ByteBuffer dst) throws IOException {
+        if (position < 0) {
+            throw new IllegalArgumentException("Index is out of boundary.");
+        }
+        if (position >= size) {
+            return -1;
+        }
+        if (!dst.hasRemaining()) {
+            return 0;
+        }
+        int first = blockOf(position);
+        int last = blockOf(Math.min(size, position + dst.remaining()) - 1);
+        byte[][] blocks = getBlocks(first, last);
+        int total = 0;
+        long pos = position;
+        for (int k = first; k <= last && dst.hasRemaining(); k++) {
+            byte[] block = blocks[k - first];
+            int off = (int) (pos - boundaries[k]);
+            int n = Math.min(dst.remaining(), block.length - off);
+            dst.put(block, off, n);
+            pos += n;
+            total += n;
+        }
+        return total;
+    }
+
+    /**
+     * Set connect timeout of later requests.
+     * @param timeout timeout in milliseconds, 0 for infinite.
+     */
+    public void setConnectTimeout(final int timeout) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("timeout should not be negative.");
+        }
+        connectTimeout = timeout;
+    }
+
+    /**
+     * Set read timeout of later requests.
+     * @param timeout timeout in milliseconds, 0 for infinite.
+     */
+    public void setReadTimeout(final int timeout) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("timeout should not be negative.");
+        }
+        readTimeout = timeout;
+    }
+
+    /**
+     * Get number of range requests sent to the server.
+     * @return number of requests.
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Get number of bytes fetched from the server.
+     * @return bytes fetched.
+     */
+    public long getFetchedBytes() {
+        return fetchedBytes.get();
+    }
+
+    /**
+     * Get bytes of blocks held in cache.
+     * @return cached bytes.
+     */
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    /**
+     * Release cached blocks.
+     */
+    @Override
+    public synchronized void close() {
+        cache.clear();
+        cachedBytes = 0;
+    }
+
+    private int blockOf(final long position) {
+        int k = Arrays.binarySearch(boundaries, position);
+        if (k < 0) {
+            return -k - 2;
+        }
+        // skip empty blocks which start at the position.
+        while (k + 1 < boundaries.length - 1 && boundaries[k + 1] == position) {
+            k++;
+        }
+        return k;
+    }
+
+    private byte[][] getBlocks(final int first, final int last) throws IOException {
+        byte[][] blocks = new byte[last - first + 1][];
+        int missingFirst = -1;
+        int missingLast = -1;
+        synchronized (this) {
+            for (int k = first; k <= last; k++) {
+                blocks[k - first] = boundaries[k] == boundaries[k + 1] ? EMPTY : cache.get(k);
+                if (blocks[k - first] == null) {
+                    if (missingFirst < 0) {
+                        missingFirst = k;
+                    }
+                    missingLast = k;
+                }
+            }
+            if (missingFirst < 0) {
+                return blocks;
+            }
+            // read ahead neighbouring chunks which are not cached.
+            int limit = Math.min(boundaries.length - 2, missingFirst + coalesce - 1);
+            while (missingLast < limit && !cache.containsKey(missingLast + 1)
+                    && boundaries[missingLast + 2] - boundaries[missingFirst] <= cacheSize / 2) {
+                missingLast++;
+            }
+        }
+        long start = boundaries[missingFirst];
+        byte[] data = fetch(start, boundaries[missingLast + 1]);
+        if (data.length != boundaries[missingLast + 1] - start) {
+            throw new EOFException("Unexpected end of remote file.");
+        }
+        synchronized (this) {
+            for (int k = missingFirst; k <= missingLast; k++) {
+                byte[] block = Arrays.copyOfRange(data, (int) (boundaries[k] - start),
+                        (int) (boundaries[k + 1] - start));
+                if (k >= first && k <= last) {
+                    blocks[k - first] = block;
+                }
+                putBlock(k, block);
+            }
+        }
+        return blocks;
+    }
+
+    private synchronized void putBlock(final int k, final byte[] block) {
+        byte[] old = cache.put(k, block);
+        if (old != null) {
+            cachedBytes -= old.length;
+        }
+        cachedBytes += block.length;
+        Iterator<Map.Entry<Integer, byte[]>> it = cache.entrySet().iterator();
+        while (cachedBytes > cacheSize && it.hasNext()) {
+            cachedBytes -= it.next().getValue().length;
+            it.remove();
+        }
+    }
+
+    private byte[] fetch(final long start, final long end) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setConnectTimeout(connectTimeout);
+        conn.setReadTimeout(readTimeout);
+        conn.setRequestProperty("Range", "bytes=" + start + "-" + (end - 1));
+        String validator;
+        synchronized (this) {
+            // weak ETag cannot be used for If-Range.
+            validator = etag != null && !etag.startsWith("W/") ? etag : lastModified;
+        }
+        if (validator != null) {
+            conn.setRequestProperty("If-Range", validator);
+        }
+        requestCount.incrementAndGet();
+        int code = conn.getResponseCode();
+        if (code != HttpURLConnection.HTTP_PARTIAL) {
+            conn.disconnect();
+            if (validator != null && code == HttpURLConnection.HTTP_OK) {
+                throw new IOException("Remote file has changed.");
+            }
+            throw new IOException("Range request is not supported: HTTP " + code);
+        }
+        long[] range = parseContentRange(conn.getHeaderField("Content-Range"));
+        // buffer is sized from the response, so the server may not send more than requested.
+        if (range[0] != start || range[1] < range[0] || range[1] >= end) {
+            conn.disconnect();
+            throw new IOException("Unexpected content range.");
+        }
+        checkVersion(conn, range[2]);
+        byte[] data = new byte[(int) (range[1] - range[0] + 1)];
+        try (InputStream in = conn.getInputStream()) {
+            int off = 0;
+            while (off < data.length) {
+                int n = in.read(data, off, data.length - off);
+                if (n < 0) {
+                    throw new EOFException("Unexpected end of response.");
+                }
+                off += n;
+            }
+        }
+        fetchedBytes.addAndGet(data.length);
+        return data;
+    }
+
+    /**
+     * Remember version of the file on the first response, and verify it on later responses.
+     */
+    private synchronized void checkVersion(final HttpURLConnection conn, final long total) throws IOException {
+        String tag = conn.getHeaderField("ETag");
+        String modified = conn.getHeaderField("Last-Modified");
+        if (size < 0) {
+            size = total;
+            etag = tag;
+            lastModified = modified;
+            return;
+        }
+        if (total != size || etag != null && !etag.equals(tag)
+                || etag == null && lastModified != null && !lastModified.equals(modified)) {
+            conn.disconnect();
+            throw new IOException("Remote file has changed.");
+        }
+    }
+
+    private static long[] parseContentRange(final String value) throws IOException {
+        // bytes <first>-<last>/<total>
+        if (value == null || !value.startsWith("bytes ")) {
+            throw new IOException("Missing content range.");
+        }
+        int dash = value.indexOf('-');
+        int slash = value.indexOf('/');
+        if (dash < 0 || slash < dash) {
+            throw new IOException("Malformed content range: " + value);
+        }
+        try {
+            return new long[] {Long.parseLong(value.substring(6, dash).trim()),
+                    Long.parseLong(value.substring(dash + 1, slash).trim()),
+                    Long.parseLong(value.substring(slash + 1).trim())};
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed content range: " + value, e);
+        }
+    }
+
+    /**
+     * InputStream to parse header, reads prefix and fetches rest directly.
+     */
+    private final class PrefixInputStream extends InputStream {
+        private long pos = 0;
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == 1 ? b[0] & 0xff : -1;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (pos >= size) {
+                return -1;
+            }
+            byte[] src = prefix;
+            int srcOff = (int) pos;
+            if (pos >= prefix.length) {
+                src = fetch(pos, Math.min(size, pos + len));
+                srcOff = 0;
+            }
+            int n = Math.min(len, src.length - srcOff);
+            System.arraycopy(src, srcOff, b, off, n);
+            pos += n;
+            return n;
+        }
+    }
+}
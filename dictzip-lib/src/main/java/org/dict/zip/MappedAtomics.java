@@ -0,0 +1,143 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * Atomic operations on memory of direct or mapped buffers.
+ * <p>
+ *     Java 8 has no API for atomic access to buffer memory, so it uses sun.misc.Unsafe
+ *     through method handles when the runtime provides it. Values are in native byte order.
+ *     Addresses should be aligned by 8 bytes.
+ * </p>
+ * @author Hiroshi Miura
+ */
+final class MappedAtomics {
+
+    private static final MethodHandle CAS;
+    private static final MethodHandle GET_VOLATILE;
+    private static final MethodHandle PUT_VOLATILE;
+    private static final MethodHandle GET_AND_ADD;
+    private static final MethodHandle LOAD_FENCE;
+    private static final MethodHandle GET_LONG;
+    private static final long ADDRESS_OFFSET;
+
+    static {
+        MethodHandle cas = null;
+        MethodHandle getVolatile = null;
+        MethodHandle putVolatile = null;
+        MethodHandle getAndAdd = null;
+        MethodHandle loadFence = null;
+        MethodHandle getLong = null;
+        long addressOffset = -1;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Object unsafe = field.get(null);
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            cas = lookup.findVirtual(unsafeClass, "compareAndSwapLong", MethodType.methodType(boolean.class,
+                    Object.class, long.class, long.class, long.class)).bindTo(unsafe);
+            getVolatile = lookup.findVirtual(unsafeClass, "getLongVolatile",
+                    MethodType.methodType(long.class, Object.class, long.class)).bindTo(unsafe);
+            putVolatile = lookup.findVirtual(unsafeClass, "putLongVolatile",
+                    MethodType.methodType(void.class, Object.class, long.class, long.class)).bindTo(unsafe);
+            getAndAdd = lookup.findVirtual(unsafeClass, "getAndAddLong",
+                    MethodType.methodType(long.class, Object.class, long.class, long.class)).bindTo(unsafe);
+            loadFence = lookup.findVirtual(unsafeClass, "loadFence", MethodType.methodType(void.class))
+                    .bindTo(unsafe);
+            getLong = lookup.findVirtual(unsafeClass, "getLong",
+                    MethodType.methodType(long.class, Object.class, long.class)).bindTo(unsafe);
+            MethodHandle fieldOffset = lookup.findVirtual(unsafeClass, "objectFieldOffset",
+                    MethodType.methodType(long.class, Field.class)).bindTo(unsafe);
+            addressOffset = (long) fieldOffset.invokeExact(Buffer.class.getDeclaredField("address"));
+        } catch (Throwable t) {
+            cas = null;
+        }
+        CAS = cas;
+        GET_VOLATILE = getVolatile;
+        PUT_VOLATILE = putVolatile;
+        GET_AND_ADD = getAndAdd;
+        LOAD_FENCE = loadFence;
+        GET_LONG = getLong;
+        ADDRESS_OFFSET = addressOffset;
+    }
+
+    private MappedAtomics() {
+    }
+
+    /**
+     * Check whether atomic operations are supported by the runtime.
+     * @return true when supported.
+     */
+    static boolean isSupported() {
+        return CAS != null;
+    }
+
+    /**
+     * Get memory address of direct buffer.
+     * @param buffer direct buffer.
+     * @return address of position 0 of the buffer.
+     */
+    static long address(final ByteBuffer buffer) {
+        if (!buffer.isDirect()) {
+            throw new IllegalArgumentException("Buffer is not direct.");
+        }
+        try {
+            return (long) GET_LONG.invokeExact((Object) buffer, ADDRESS_OFFSET);
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    static boolean compareAndSet(final long address, final long expect, final long update) {
+        try {
+            return (boolean) CAS.invokeExact((Object) null, address, expect, update);
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    static long getVolatile(final long address) {
+        try {
+            return (long) GET_VOLATILE.invokeExact((Object) null, address);
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    static void putVolatile(final long address, final long value) {
+        try {
+            PUT_VOLATILE.invokeExact((Object) null, address, value);
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    static long getAndAdd(final long address, final long delta) {
+        try {
+            return (long) GET_AND_ADD.invokeExact((Object) null, address, delta);
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    static void loadFence() {
+        try {
+            LOAD_FENCE.invokeExact();
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Storage on memory mapped file.
+ * <p>
+ *     File is mapped read-only in segments of 1GB, so files larger than 2GB can be mapped.
+ *     Mapping is released by garbage collector, because Java has no API to unmap.
+ * </p>
+ * @author Hiroshi Miura
+ */
+public class MappedStorage implements DictZipStorage {
+
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+
+    private final ByteBuffer[] segments;
+    private final long size;
+
+    /**
+     * Map file channel.
+     * <p>
+     *     The channel can be closed after construction.
+     * </p>
+     * @param channel file channel to map.
+     * @throws IOException if an I/O error has occurred.
+     */
+    public MappedStorage(final FileChannel channel) throws IOException {
+        size = channel.size();
+        int count = (int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT);
+        segments = new ByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long start = (long) i << SEGMENT_SHIFT;
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, size - start));
+        }
+    }
+
+    /**
+     * Map file.
+     * @param path file to map.
+     * @return storage object.
+     * @throws IOException if an I/O error has occurred.
+     */
+    public static MappedStorage open(final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new MappedStorage(channel);
+        }
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public int read(final long position, final ByteBuffer dst) {
+        if (position >= size) {
+            return -1;
+        }
+        ByteBuffer segment = segments[(int) (position >>> SEGMENT_SHIFT)].duplicate();
+        segment.position((int) (position & (SEGMENT_SIZE - 1)));
+        int n = Math.min(dst.remaining(), segment.remaining());
+        segment.limit(segment.position() + n);
+        dst.put(segment);
+        return n;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chunk cache on direct memory slabs.
+ * <p>
+ *     Memory is allocated off heap at construction in arenas of up to 1GB, and divided
+ *     into slabs of fixed size. A chunk is stored in one slab, so default slab size of 64KB
+ *     holds any chunk of dictzip. Slabs are partitioned into lock stripes, each of which
+ *     has own index and evicts least recently used chunk to recycle its slab.
+ *     Cached data does not put any pressure on garbage collector.
+ * </p>
+ * @author Hiroshi Miura
+ */
+public final class OffHeapChunkCache implements DictZipChunkCache {
+
+    private static final int DEFAULT_SLAB_SIZE = 65536;
+    private static final long ARENA_SIZE = 1L << 30;
+    private static final int STRIPES = 16;
+
+    private final int slabSize;
+    private final int slabsPerArena;
+    private final ByteBuffer[] arenas;
+    private final Stripe[] stripes;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Constructor with slab size of 64KB.
+     * @param capacity capacity in bytes.
+     */
+    public OffHeapChunkCache(final long capacity) {
+        this(capacity, DEFAULT_SLAB_SIZE);
+    }
+
+    /**
+     * Constructor.
+     * <p>
+     *     Slab size should be chunk length of cached files, chunks longer than it are not cached.
+     * </p>
+     * @param capacity capacity in bytes.
+     * @param slabSize size of a slab.
+     */
+    public OffHeapChunkCache(final long capacity, final int slabSize) {
+        if (slabSize <= 0 || capacity < (long) slabSize * STRIPES) {
+            throw new IllegalArgumentException("capacity should hold at least " + STRIPES + " slabs.");
+        }
+        this.slabSize = slabSize;
+        slabsPerArena = (int) (ARENA_SIZE / slabSize);
+        long slabCount = capacity / slabSize;
+        if (slabCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("capacity is too large.");
+        }
+        int arenaCount = (int) ((slabCount + slabsPerArena - 1) / slabsPerArena);
+        arenas = new ByteBuffer[arenaCount];
+        for (int i = 0; i < arenaCount; i++) {
+            long slabs = Math.min(slabsPerArena, slabCount - (long) i * slabsPerArena);
+            arenas[i] = ByteBuffer.allocateDirect((int) (slabs * slabSize));
+        }
+        stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+        for (int slab = 0; slab < slabCount; slab++) {
+            stripes[slab % STRIPES].free.add(slab);
+        }
+    }
+
+    @Override
+    public boolean get(final long fileId, final int index, final ByteBuffer dst) {
+        ChunkKey key = new ChunkKey(fileId, index);
+        Stripe stripe = stripeOf(key);
+        synchronized (stripe) {
+            Slot slot = stripe.index.get(key);
+            if (slot == null) {
+                missCount.incrementAndGet();
+                return false;
+            }
+            dst.put(slab(slot.slab, slot.length));
+        }
+        hitCount.incrementAndGet();
+        return true;
+    }
+
+    @Override
+    public void put(final long fileId, final int index, final ByteBuffer data) {
+        int length = data.remaining();
+        if (length > slabSize) {
+            return;
+        }
+        ChunkKey key = new ChunkKey(fileId, index);
+        Stripe stripe = stripeOf(key);
+        synchronized (stripe) {
+            Slot slot = stripe.index.get(key);
+            if (slot == null) {
+                Integer slab = stripe.free.poll();
+                if (slab == null) {
+                    Iterator<Map.Entry<ChunkKey, Slot>> it = stripe.index.entrySet().iterator();
+                    slab = it.next().getValue().slab;
+                    it.remove();
+                }
+                slot = new Slot(slab);
+                stripe.index.put(key, slot);
+            }
+            slot.length = length;
+            ByteBuffer target = slab(slot.slab, slabSize);
+            target.put(data.duplicate());
+        }
+    }
+
+    /**
+     * Remove all chunks.
+     */
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                for (Slot slot : stripe.index.values()) {
+                    stripe.free.add(slot.slab);
+                }
+                stripe.index.clear();
+            }
+        }
+    }
+
+    /**
+     * Get slab size.
+     * @return bytes of a slab.
+     */
+    public int getSlabSize() {
+        return slabSize;
+    }
+
+    /**
+     * Get capacity allocated off heap.
+     * @return capacity in bytes.
+     */
+    public long getCapacity() {
+        long total = 0;
+        for (ByteBuffer arena : arenas) {
+            total += arena.capacity();
+        }
+        return total;
+    }
+
+    /**
+     * Get number of cached chunks.
+     * @return number of chunks.
+     */
+    public int getChunkCount() {
+        int count = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                count += stripe.index.size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Get number of hits.
+     * @return hit count.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Get number of misses.
+     * @return miss count.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    private Stripe stripeOf(final ChunkKey key) {
+        return stripes[(key.hashCode() & 0x7fffffff) % STRIPES];
+    }
+
+    private ByteBuffer slab(final int slab, final int length) {
+        ByteBuffer buf = arenas[slab / slabsPerArena].duplicate();
+        int pos = (slab % slabsPerArena) * slabSize;
+        buf.limit(pos + length);
+        buf.position(pos);
+        return buf;
+    }
+
+    /**
+     * Lock stripe with own index and free slabs.
+     */
+    private static final class Stripe {
+        private final LinkedHashMap<ChunkKey, Slot> index = new LinkedHashMap<>(16, 0.75f, true);
+        private final ArrayDeque<Integer> free = new ArrayDeque<>();
+    }
+
+    /**
+     * Slab holds a chunk.
+     */
+    private static final class Slot {
+        private final int slab;
+        private int length;
+
+        Slot(final int slab) {
+            this.slab = slab;
+        }
+    }
+}
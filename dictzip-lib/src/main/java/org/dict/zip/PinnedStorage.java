@@ -0,0 +1,157 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * Storage which holds whole compressed data in direct buffers.
+ * <p>
+ *     Data is loaded at open time, and all reads are served from memory off heap,
+ *     so no disk I/O, page fault of mapped file nor eviction from page cache
+ *     occurs on lookup. Data is kept compressed, so a footprint is the size of
+ *     dictzip file. Buffers are allocated in segments of 1GB, and are released
+ *     by garbage collector after close.
+ * </p>
+ * @author Hiroshi Miura
+ */
+public final class PinnedStorage implements DictZipStorage {
+
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+    private static final int PAGE_SIZE = 4096;
+
+    private volatile ByteBuffer[] segments;
+    private final long size;
+    private volatile int touched;
+
+    private PinnedStorage(final ByteBuffer[] segments, final long size) {
+        this.segments = segments;
+        this.size = size;
+    }
+
+    /**
+     * Load dictzip file into memory.
+     * @param path dictzip file.
+     * @return storage object.
+     * @throws IOException if an I/O error has occurred.
+     */
+    public static PinnedStorage load(final Path path) throws IOException {
+        return load(path, false);
+    }
+
+    /**
+     * Load dictzip file into memory.
+     * @param path dictzip file.
+     * @param touch true to touch every page after load.
+     * @return storage object.
+     * @throws IOException if an I/O error has occurred.
+     */
+    public static PinnedStorage load(final Path path, final boolean touch) throws IOException {
+        try (DictZipStorage source = FileChannelStorage.open(path)) {
+            return load(source, touch);
+        }
+    }
+
+    /**
+     * Load data of other storage into memory.
+     * <p>
+     *     Source storage is not closed.
+     * </p>
+     * @param source storage to copy.
+     * @param touch true to touch every page after load.
+     * @return storage object.
+     * @throws IOException if an I/O error has occurred.
+     */
+    public static PinnedStorage load(final DictZipStorage source, final boolean touch) throws IOException {
+        long size = source.size();
+        int count = (int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT);
+        ByteBuffer[] segments = new ByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long start = (long) i << SEGMENT_SHIFT;
+            segments[i] = ByteBuffer.allocateDirect((int) Math.min(SEGMENT_SIZE, size - start));
+            source.readFully(start, segments[i]);
+            segments[i].flip();
+        }
+        PinnedStorage storage = new PinnedStorage(segments, size);
+        if (touch) {
+            storage.touch();
+        }
+        return storage;
+    }
+
+    /**
+     * Read a byte of every page, to fault in pages which are swapped out.
+     * @throws IOException when storage is closed.
+     */
+    public void touch() throws IOException {
+        int sum = 0;
+        for (ByteBuffer segment : getSegments()) {
+            for (int i = 0; i < segment.limit(); i += PAGE_SIZE) {
+                sum += segment.get(i);
+            }
+        }
+        touched = sum;
+    }
+
+    /**
+     * Get resident footprint in bytes.
+     * @return bytes held in memory, or 0 after close.
+     */
+    public long getFootprint() {
+        ByteBuffer[] segs = segments;
+        if (segs == null) {
+            return 0;
+        }
+        long total = 0;
+        for (ByteBuffer segment : segs) {
+            total += segment.capacity();
+        }
+        return total;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public int read(final long position, final ByteBuffer dst) throws IOException {
+        ByteBuffer[] segs = getSegments();
+        if (position >= size) {
+            return -1;
+        }
+        ByteBuffer segment = segs[(int) (position >>> SEGMENT_SHIFT)].duplicate();
+        segment.position((int) (position & (SEGMENT_SIZE - 1)));
+        int n = Math.min(dst.remaining(), segment.remaining());
+        segment.limit(segment.position() + n);
+        dst.put(segment);
+        return n;
+    }
+
+    /**
+     * Release buffers.
+     * <p>
+     *     Memory is freed when garbage collector collects the buffers.
+     * </p>
+     */
+    @Override
+    public void close() {
+        segments = null;
+    }
+
+    private ByteBuffer[] getSegments() throws IOException {
+        ByteBuffer[] segs = segments;
+        if (segs == null) {
+            throw new IOException("Already closed!");
+        }
+        return segs;
+    }
+}
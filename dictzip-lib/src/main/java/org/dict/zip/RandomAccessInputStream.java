@@ -16,19 +16,33 @@ import java.io.InputStream;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.Arrays;
 
 /**
  * RandomAccessInputStream.
- * Buffering RandomAccessFile and provide InputStream interface.
+ * Buffering DictZipStorage and provide InputStream interface.
+ * RandomAccessFile is read through its file channel.
+ * <p>
+ *     By default the buffer is refilled with a block of buffer size. With adaptive
+ *     read-ahead, a read continuing the buffer doubles the window up to the limit,
+ *     and a read elsewhere shrinks it back to buffer size. When chunk boundaries are
+ *     given, a grown window ends at a chunk boundary so whole chunks are fetched.
+ * </p>
  *
  * @author Ho Ngoc Duc
  * @author Hiroshi Miura
  */
 public class RandomAccessInputStream extends InputStream {
     private static final int DEFAULT_BUFSIZE = 4096;
-    private final RandomAccessFile in;
-    private final ByteBuffer byteBuffer;
+    private final DictZipStorage storage;
+    private ByteBuffer byteBuffer;
     private final int bufsize;
+    private int maxWindow;
+    private int window;
+    private long[] boundaries;
+    private long fillCount = 0;
+    private long sequentialFillCount = 0;
+    private long filledBytes = 0;
 
     private long currentpos = 0;
     private long startpos = -1;
@@ -43,12 +57,34 @@ public class RandomAccessInputStream extends InputStream {
      * @param bufsize buffer size
      */
     public RandomAccessInputStream(final RandomAccessFile inFile, final int bufsize) {
-        in = inFile;
+        this(new FileChannelStorage(inFile.getChannel()), bufsize);
+    }
+
+    /**
+     * Constructor of RandomAccessInputStream, accept storage and buffer size.
+     * @param storage storage to read.
+     * @param bufsize buffer size
+     */
+    public RandomAccessInputStream(final DictZipStorage storage, final int bufsize) {
+        this.storage = storage;
         this.bufsize = bufsize;
-        fileChannel = inFile.getChannel();
+        maxWindow = bufsize;
+        window = bufsize;
+        if (storage instanceof FileChannelStorage) {
+            fileChannel = ((FileChannelStorage) storage).getChannel();
+        }
         byteBuffer = ByteBuffer.allocate(bufsize);
     }
 
+    /**
+     * Construct RandomAccessInputStream from storage.
+     *
+     * @param storage storage to read.
+     */
+    public RandomAccessInputStream(final DictZipStorage storage) {
+        this(storage, DEFAULT_BUFSIZE);
+    }
+
     /**
      * Construct RandomAccessInputStream from file.
      *
@@ -69,14 +105,76 @@ public class RandomAccessInputStream extends InputStream {
         this(new RandomAccessFile(file, mode));
     }
 
+    /**
+     * Enable adaptive read-ahead.
+     * @param limit maximum size of read-ahead window in bytes, or buffer size or less to disable.
+     */
+    public final synchronized void setReadAhead(final int limit) {
+        maxWindow = Math.max(limit, bufsize);
+        window = bufsize;
+    }
+
+    /**
+     * Set boundaries of compressed chunks, to align read-ahead window to them.
+     * @param header dictzip header.
+     */
+    public final synchronized void setChunkBoundaries(final DictZipHeader header) {
+        int count = header.getChunkCount();
+        long[] offsets = new long[count];
+        for (int i = 0; i < count; i++) {
+            offsets[i] = header.getChunkOffset(i);
+        }
+        boundaries = offsets;
+    }
+
+    /**
+     * Get current size of read-ahead window.
+     * @return window size in bytes.
+     */
+    public final synchronized int getWindow() {
+        return window;
+    }
+
+    /**
+     * Get number of buffer fills.
+     * @return fill count.
+     */
+    public final synchronized long getFillCount() {
+        return fillCount;
+    }
+
+    /**
+     * Get number of buffer fills detected as sequential run.
+     * @return sequential fill count.
+     */
+    public final synchronized long getSequentialFillCount() {
+        return sequentialFillCount;
+    }
+
+    /**
+     * Get number of bytes read from storage.
+     * @return filled bytes.
+     */
+    public final synchronized long getFilledBytes() {
+        return filledBytes;
+    }
+
     /**
      * Get an unique FileChannel Object related to the file.
-     * @return FileChannel object.
+     * @return FileChannel object, or null when storage is not a file channel.
      */
     public final FileChannel getChannel() {
         return fileChannel;
     }
 
+    /**
+     * Get underlying storage.
+     * @return storage object.
+     */
+    public final DictZipStorage getStorage() {
+        return storage;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -94,7 +192,7 @@ public class RandomAccessInputStream extends InputStream {
      */
     @Override
     public final void close() throws IOException {
-        in.close();
+        storage.close();
         fileChannel = null;
     }
 
@@ -105,7 +203,7 @@ public class RandomAccessInputStream extends InputStream {
      * @exception IOException if an I/O error has occurred.
      */
     public final long length() throws IOException {
-        return fileChannel.size();
+        return storage.size();
     }
 
     public final int getLength() throws IOException {
@@ -165,22 +263,8 @@ public class RandomAccessInputStream extends InputStream {
      * @return -1 when position is greater than the file's current size, otherwise byte value.
      */
     public synchronized int read(long pos) {
-        if (pos < startpos || pos > endpos) {
-            long blockstart = (pos/ bufsize) * bufsize;
-            int n = 0;
-            try {
-                fileChannel.position(blockstart);
-                byteBuffer.clear();
-                n += fileChannel.read(byteBuffer);
-            } catch (IOException e) {
-                return -1;
-            }
-            byteBuffer.flip();
-            startpos = blockstart;
-            endpos = blockstart + n - 1;
-            if (pos < startpos || pos > endpos) {
-                return -1;
-            }
+        if ((pos < startpos || pos > endpos) && !load(pos)) {
+            return -1;
         }
         return byteBuffer.get((int) (pos - startpos)) & 0xff;
     }
@@ -190,21 +274,8 @@ public class RandomAccessInputStream extends InputStream {
      */
     @Override
     public final int read(final byte @NotNull [] buf, final int off, final int len) throws IOException {
-        if (currentpos < startpos || currentpos > endpos) {
-            long blockstart = (currentpos / bufsize) * bufsize;
-            long n = 0;
-            try {
-                fileChannel.position(blockstart);
-                byteBuffer.clear();
-                n += fileChannel.read(byteBuffer);
-            } catch (IOException e) {
-                return -1;
-            }
-            startpos = blockstart;
-            endpos = blockstart + n - 1;
-            if (currentpos < startpos || currentpos > endpos) {
-                return -1;
-            }
+        if ((currentpos < startpos || currentpos > endpos) && !load(currentpos)) {
+            return -1;
         }
         byteBuffer.position((int) (currentpos - startpos));
         int size = Math.min(Math.min(len, (int)(length() - currentpos)), byteBuffer.remaining());
@@ -213,6 +284,81 @@ public class RandomAccessInputStream extends InputStream {
         return size;
     }
 
+    /**
+     * Load buffer which contains the position.
+     * @param pos position to read.
+     * @return true when the position is loaded, false at end of file or error.
+     */
+    private boolean load(final long pos) {
+        long blockstart;
+        int size;
+        if (maxWindow > bufsize && endpos >= 0 && pos > endpos && pos - endpos <= window) {
+            // sequential run, grow the window.
+            window = (int) Math.min((long) window * 2, maxWindow);
+            blockstart = pos;
+            size = alignToChunk(blockstart, window);
+            sequentialFillCount++;
+        } else {
+            window = bufsize;
+            blockstart = (pos / bufsize) * bufsize;
+            size = bufsize;
+        }
+        int n;
+        try {
+            n = fill(blockstart, size);
+        } catch (IOException e) {
+            return false;
+        }
+        fillCount++;
+        filledBytes += n;
+        startpos = blockstart;
+        endpos = blockstart + n - 1;
+        return pos >= startpos && pos <= endpos;
+    }
+
+    /**
+     * Shorten the size so the block ends at a chunk boundary, when one is in range.
+     */
+    private int alignToChunk(final long blockstart, final int size) {
+        if (boundaries == null) {
+            return size;
+        }
+        int k = Arrays.binarySearch(boundaries, blockstart + size);
+        if (k >= 0) {
+            return size;
+        }
+        k = -k - 2;
+        if (k < 0 || boundaries[k] <= blockstart) {
+            return size;
+        }
+        return (int) (boundaries[k] - blockstart);
+    }
+
+    /**
+     * Fill buffer with a block from storage.
+     * @param blockstart position of the block.
+     * @param size size of the block.
+     * @return number of bytes in buffer.
+     * @throws IOException if an I/O error has occurred.
+     */
+    private int fill(final long blockstart, final int size) throws IOException {
+        if (byteBuffer.capacity() < size) {
+            byteBuffer = ByteBuffer.allocate(size);
+        }
+        byteBuffer.clear();
+        byteBuffer.limit(size);
+        int n = 0;
+        while (byteBuffer.hasRemaining()) {
+            int r = storage.read(blockstart + n, byteBuffer);
+            if (r < 0) {
+                break;
+            }
+            n += r;
+        }
+        byteBuffer.flip();
+        return n;
+    }
+
     /**
      * Read full data to byte buffer.
      *
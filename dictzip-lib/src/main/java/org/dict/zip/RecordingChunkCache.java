@@ -0,0 +1,133 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chunk cache which records accesses to another cache, to take access profiles.
+ * <p>
+ *     Every lookup is counted per chunk. A snapshot takes the most accessed chunks,
+ *     and halves all counts, so periodic snapshots follow recent hot set.
+ * </p>
+ * @author Hiroshi Miura
+ */
+public class RecordingChunkCache implements DictZipChunkCache {
+
+    private final DictZipChunkCache delegate;
+    private final ConcurrentHashMap<ChunkKey, AtomicInteger> counts = new ConcurrentHashMap<>();
+    private final AtomicLong snapshotFailures = new AtomicLong();
+    private volatile Exception lastSnapshotError;
+
+    /**
+     * Constructor.
+     * @param delegate cache to record.
+     */
+    public RecordingChunkCache(final DictZipChunkCache delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public boolean get(final long fileId, final int index, final ByteBuffer dst) {
+        ChunkKey key = new ChunkKey(fileId, index);
+        AtomicInteger count = counts.get(key);
+        if (count == null) {
+            count = counts.computeIfAbsent(key, k -> new AtomicInteger());
+        }
+        count.incrementAndGet();
+        return delegate.get(fileId, index, dst);
+    }
+
+    @Override
+    public void put(final long fileId, final int index, final ByteBuffer data) {
+        delegate.put(fileId, index, data);
+    }
+
+    /**
+     * Take a profile of the most accessed chunks.
+     * @param maxEntries maximum number of chunks in profile.
+     * @return profile, hotter chunk comes first.
+     */
+    public DictZipAccessProfile snapshot(final int maxEntries) {
+        List<Map.Entry<ChunkKey, Integer>> entries = new ArrayList<>();
+        Iterator<Map.Entry<ChunkKey, AtomicInteger>> it = counts.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<ChunkKey, AtomicInteger> e = it.next();
+            int count = e.getValue().get();
+            entries.add(new AbstractMap.SimpleImmutableEntry<>(e.getKey(), count));
+            // age counts, and forget chunks no longer accessed.
+            if (e.getValue().updateAndGet(c -> c / 2) == 0) {
+                it.remove();
+            }
+        }
+        entries.sort((a, b) -> Integer.compare(b.getValue(), a.getValue()));
+        int n = Math.min(maxEntries, entries.size());
+        long[] fileIds = new long[n];
+        int[] indexes = new int[n];
+        for (int i = 0; i < n; i++) {
+            fileIds[i] = entries.get(i).getKey().getFileId();
+            indexes[i] = entries.get(i).getKey().getIndex();
+        }
+        return new DictZipAccessProfile(fileIds, indexes);
+    }
+
+    /**
+     * Write snapshots to the file periodically.
+     * <p>
+     *     A snapshot which fails to be written does not stop later snapshots.
+     *     Failures are counted with {@link #getSnapshotFailureCount()}.
+     * </p>
+     * @param executor executor to run snapshots.
+     * @param path profile file.
+     * @param maxEntries maximum number of chunks in profile.
+     * @param period period of snapshots.
+     * @param unit time unit of period.
+     * @return future to cancel snapshots.
+     */
+    public ScheduledFuture<?> scheduleSnapshots(final ScheduledExecutorService executor, final Path path,
+                                                final int maxEntries, final long period, final TimeUnit unit) {
+        return executor.scheduleAtFixedRate(() -> {
+            try {
+                snapshot(maxEntries).write(path);
+            } catch (IOException | RuntimeException e) {
+                // an exception would cancel the schedule.
+                lastSnapshotError = e;
+                snapshotFailures.incrementAndGet();
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Get number of scheduled snapshots which failed.
+     * @return failure count.
+     */
+    public long getSnapshotFailureCount() {
+        return snapshotFailures.get();
+    }
+
+    /**
+     * Get error of the last scheduled snapshot which failed.
+     * @return exception, or null when no snapshot failed.
+     */
+    public Exception getLastSnapshotError() {
+        return lastSnapshotError;
+    }
+}
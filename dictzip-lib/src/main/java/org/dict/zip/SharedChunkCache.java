@@ -0,0 +1,328 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Chunk cache shared by processes through a memory mapped file.
+ * <p>
+ *     Slots and their headers live in a mapped file, so chunks decoded by any process
+ *     are read by other processes mapping the same file, and stay resident once per host.
+ *     A chunk is stored in one of 4 slots of a set selected by hash of file id and chunk index.
+ *     Each slot has a sequence number which is odd while the slot is written. A writer
+ *     claims a slot by compare-and-swap of the sequence number, which also carries the
+ *     claim time, and publishes it by compare-and-swap to the even number. A reader copies
+ *     the slot without lock, and discards the copy when the sequence number changed
+ *     meanwhile. A slot left claimed by a crashed process is taken over after 10 seconds;
+ *     a stalled writer which lost its claim drops its entry on publish, and data it wrote
+ *     meanwhile is detected by CRC of each slot on read.
+ * </p>
+ * @author Hiroshi Miura
+ */
+public final class SharedChunkCache implements DictZipChunkCache, Closeable {
+
+    private static final int MAGIC = 0x445a5343;  // "DZSC"
+    private static final int VERSION = 2;
+    private static final int FILE_HEADER_LEN = 64;
+    private static final int SLOT_HEADER_LEN = 64;
+    private static final int DEFAULT_SLOT_SIZE = 65536;
+    private static final int WAYS = 4;
+    private static final long SEGMENT_LIMIT = 1L << 30;
+    private static final long STALE_CLAIM_MILLIS = 10000;
+    // sequence number: claim time in upper bits, claim counter, and claimed flag in bit 0.
+    private static final int CLAIM_TIME_SHIFT = 22;
+    private static final long CLAIM_COUNTER_MASK = (1L << CLAIM_TIME_SHIFT) - 2;
+
+    // file header fields
+    private static final int STAMP_COUNTER = 16;
+    // slot header fields
+    private static final int SEQ = 0;
+    private static final int FILE_ID = 8;
+    private static final int INDEX = 16;
+    private static final int LENGTH = 20;
+    private static final int CRC = 24;
+    private static final int STAMP = 32;
+
+    private final FileChannel channel;
+    private final int slotSize;
+    private final int slotBytes;
+    private final int setCount;
+    private final int slotsPerSegment;
+    private final MappedByteBuffer fileHeader;
+    private final MappedByteBuffer[] segments;
+    private final long headerAddress;
+    private final long[] segmentAddresses;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    private SharedChunkCache(final FileChannel channel, final int slotSize, final int slotCount) throws IOException {
+        this.channel = channel;
+        this.slotSize = slotSize;
+        slotBytes = SLOT_HEADER_LEN + slotSize;
+        setCount = slotCount / WAYS;
+        slotsPerSegment = (int) (SEGMENT_LIMIT / slotBytes);
+        int totalSlots = setCount * WAYS;
+        long size = FILE_HEADER_LEN + (long) totalSlots * slotBytes;
+        FileLock lock = channel.lock();
+        try {
+            long current = channel.size();
+            if (current == 0) {
+                channel.write(ByteBuffer.allocate(1), size - 1);
+            } else if (current != size) {
+                throw new IOException("Shared cache file has other capacity or slot size.");
+            }
+            fileHeader = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_HEADER_LEN);
+            fileHeader.order(ByteOrder.nativeOrder());
+            if (fileHeader.getInt(0) != MAGIC) {
+                // new file is extended with zero, so all slots are empty.
+                fileHeader.putShort(4, (short) VERSION);
+                fileHeader.putInt(8, slotSize);
+                fileHeader.putInt(12, totalSlots);
+                fileHeader.putInt(0, MAGIC);
+                fileHeader.force();
+            } else if (fileHeader.getShort(4) != VERSION) {
+                throw new IOException("Shared cache file has other format version.");
+            } else if (fileHeader.getInt(8) != slotSize || fileHeader.getInt(12) != totalSlots) {
+                throw new IOException("Shared cache file has other capacity or slot size.");
+            }
+        } finally {
+            lock.release();
+        }
+        headerAddress = MappedAtomics.address(fileHeader);
+        int count = (totalSlots + slotsPerSegment - 1) / slotsPerSegment;
+        segments = new MappedByteBuffer[count];
+        segmentAddresses = new long[count];
+        for (int i = 0; i < count; i++) {
+            long start = FILE_HEADER_LEN + (long) i * slotsPerSegment * slotBytes;
+            int slots = Math.min(slotsPerSegment, totalSlots - i * slotsPerSegment);
+            segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, start, (long) slots * slotBytes);
+            segments[i].order(ByteOrder.nativeOrder());
+            segmentAddresses[i] = MappedAtomics.address(segments[i]);
+        }
+    }
+
+    /**
+     * Open or create shared cache file with slot size of 64KB.
+     * @param path path of cache file.
+     * @param capacity capacity of data in bytes.
+     * @return cache object.
+     * @throws IOException if an I/O error has occurred, or the file has other capacity.
+     */
+    public static SharedChunkCache open(final Path path, final long capacity) throws IOException {
+        return open(path, capacity, DEFAULT_SLOT_SIZE);
+    }
+
+    /**
+     * Open or create shared cache file.
+     * <p>
+     *     All processes should open the file with same capacity and slot size.
+     * </p>
+     * @param path path of cache file.
+     * @param capacity capacity of data in bytes.
+     * @param slotSize size of a slot, chunks longer than it are not cached.
+     * @return cache object.
+     * @throws IOException if an I/O error has occurred, the file has other capacity, or
+     *     the runtime does not support atomic access to memory.
+     */
+    public static SharedChunkCache open(final Path path, final long capacity, final int slotSize)
+            throws IOException {
+        if (!MappedAtomics.isSupported()) {
+            throw new IOException("Atomic access to mapped memory is not supported.");
+        }
+        if (slotSize <= 0 || slotSize % 8 != 0 || slotSize > SEGMENT_LIMIT - SLOT_HEADER_LEN
+                || capacity < (long) slotSize * WAYS) {
+            throw new IllegalArgumentException("slotSize should be multiple of 8, and capacity should hold at least "
+                    + WAYS + " slots.");
+        }
+        long slots = capacity / slotSize;
+        if (slots > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("capacity is too large.");
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            return new SharedChunkCache(channel, slotSize, (int) slots);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean get(final long fileId, final int index, final ByteBuffer dst) {
+        int set = setOf(fileId, index);
+        for (int way = 0; way < WAYS; way++) {
+            int slot = set * WAYS + way;
+            ByteBuffer header = slotBuffer(slot);
+            long seqAddress = slotAddress(slot) + SEQ;
+            long seq = MappedAtomics.getVolatile(seqAddress);
+            if (seq == 0 || (seq & 1) != 0
+                    || header.getLong(FILE_ID) != fileId || header.getInt(INDEX) != index) {
+                continue;
+            }
+            int length = header.getInt(LENGTH);
+            int crc = header.getInt(CRC);
+            if (length < 0 || length > slotSize || length > dst.remaining()) {
+                break;
+            }
+            int start = dst.position();
+            ByteBuffer data = header.duplicate();
+            data.position(SLOT_HEADER_LEN);
+            data.limit(SLOT_HEADER_LEN + length);
+            dst.put(data);
+            MappedAtomics.loadFence();
+            if (MappedAtomics.getVolatile(seqAddress) != seq) {
+                // overwritten while copying.
+                dst.position(start);
+                break;
+            }
+            ByteBuffer copied = dst.duplicate();
+            copied.position(start);
+            copied.limit(start + length);
+            if (checksum(fileId, index, copied) != crc) {
+                // torn by a writer which lost its claim.
+                dst.position(start);
+                break;
+            }
+            hitCount.incrementAndGet();
+            return true;
+        }
+        missCount.incrementAndGet();
+        return false;
+    }
+
+    @Override
+    public void put(final long fileId, final int index, final ByteBuffer data) {
+        int length = data.remaining();
+        if (length > slotSize) {
+            return;
+        }
+        int set = setOf(fileId, index);
+        int victim = -1;
+        long victimSeq = 0;
+        long victimStamp = Long.MAX_VALUE;
+        long now = System.currentTimeMillis();
+        for (int way = 0; way < WAYS; way++) {
+            int slot = set * WAYS + way;
+            ByteBuffer header = slotBuffer(slot);
+            long seq = MappedAtomics.getVolatile(slotAddress(slot) + SEQ);
+            long stamp;
+            if ((seq & 1) != 0) {
+                if (now - (seq >>> CLAIM_TIME_SHIFT) < STALE_CLAIM_MILLIS) {
+                    continue;
+                }
+                // claimed by a crashed process.
+                stamp = -1;
+            } else if (seq == 0) {
+                stamp = 0;
+            } else {
+                if (header.getLong(FILE_ID) == fileId && header.getInt(INDEX) == index) {
+                    return;
+                }
+                stamp = header.getLong(STAMP);
+            }
+            if (stamp < victimStamp) {
+                victim = slot;
+                victimSeq = seq;
+                victimStamp = stamp;
+            }
+        }
+        if (victim < 0) {
+            return;
+        }
+        long seqAddress = slotAddress(victim) + SEQ;
+        // claim the slot, sequence number becomes odd and carries the claim time.
+        long claimed = now << CLAIM_TIME_SHIFT | (victimSeq + 2) & CLAIM_COUNTER_MASK | 1;
+        if (!MappedAtomics.compareAndSet(seqAddress, victimSeq, claimed)) {
+            return;
+        }
+        ByteBuffer header = slotBuffer(victim);
+        header.putLong(FILE_ID, fileId);
+        header.putInt(INDEX, index);
+        header.putInt(LENGTH, length);
+        header.putInt(CRC, checksum(fileId, index, data.duplicate()));
+        header.putLong(STAMP, MappedAtomics.getAndAdd(headerAddress + STAMP_COUNTER, 1) + 1);
+        ByteBuffer target = header.duplicate();
+        target.position(SLOT_HEADER_LEN);
+        target.put(data.duplicate());
+        // publish the slot, unless the claim was taken over as stale.
+        MappedAtomics.compareAndSet(seqAddress, claimed, claimed & ~1L);
+    }
+
+    /**
+     * Get number of hits in this process.
+     * @return hit count.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Get number of misses in this process.
+     * @return miss count.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Get capacity of data.
+     * @return capacity in bytes.
+     */
+    public long getCapacity() {
+        return (long) setCount * WAYS * slotSize;
+    }
+
+    /**
+     * Close the cache file.
+     * <p>
+     *     The mapping is kept until the object is collected, and slots remain for other processes.
+     * </p>
+     * @throws IOException if an I/O error has occurred.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static int checksum(final long fileId, final int index, final ByteBuffer data) {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        ByteBuffer key = ByteBuffer.allocate(12);
+        key.putLong(fileId).putInt(index).flip();
+        crc.update(key);
+        return (int) crc.getValue();
+    }
+
+    private int setOf(final long fileId, final int index) {
+        return (new ChunkKey(fileId, index).hashCode() & 0x7fffffff) % setCount;
+    }
+
+    private long slotAddress(final int slot) {
+        return segmentAddresses[slot / slotsPerSegment] + (long) (slot % slotsPerSegment) * slotBytes;
+    }
+
+    private ByteBuffer slotBuffer(final int slot) {
+        ByteBuffer buf = segments[slot / slotsPerSegment].duplicate();
+        int pos = (slot % slotsPerSegment) * slotBytes;
+        buf.position(pos);
+        buf.limit(pos + slotBytes);
+        return buf.slice().order(ByteOrder.nativeOrder());
+    }
+}
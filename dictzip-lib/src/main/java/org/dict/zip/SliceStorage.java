@@ -0,0 +1,77 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Storage of a region in other storage.
+ * @author Hiroshi Miura
+ */
+public class SliceStorage implements DictZipStorage {
+
+    private final DictZipStorage base;
+    private final long offset;
+    private final long length;
+
+    /**
+     * Constructor.
+     * <p>
+     *     The storage takes ownership of the base storage and closes it on close().
+     * </p>
+     * @param base storage holds the region.
+     * @param offset start of region in base storage.
+     * @param length length of region.
+     * @throws IOException if an I/O error has occurred.
+     * @throws IllegalArgumentException when the region is out of base storage.
+     */
+    public SliceStorage(final DictZipStorage base, final long offset, final long length) throws IOException {
+        if (offset < 0 || length < 0 || offset > base.size() - length) {
+            throw new IllegalArgumentException("Index is out of boundary.");
+        }
+        this.base = base;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Get start of region in base storage.
+     * @return offset of region.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    @Override
+    public long size() {
+        return length;
+    }
+
+    @Override
+    public int read(final long position, final ByteBuffer dst) throws IOException {
+        if (position >= length) {
+            return -1;
+        }
+        if (dst.remaining() <= length - position) {
+            return base.read(offset + position, dst);
+        }
+        ByteBuffer part = dst.duplicate();
+        part.limit(part.position() + (int) (length - position));
+        int n = base.read(offset + position, part);
+        if (n > 0) {
+            dst.position(dst.position() + n);
+        }
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        base.close();
+    }
+}
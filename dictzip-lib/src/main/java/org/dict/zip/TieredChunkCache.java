@@ -0,0 +1,56 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Chunk cache of two tiers, such as memory and disk.
+ * <p>
+ *     A lookup checks the first tier and then the second tier, and a chunk found in
+ *     the second tier is promoted to the first tier. A decoded chunk is put into both tiers.
+ * </p>
+ * @author Hiroshi Miura
+ */
+public class TieredChunkCache implements DictZipChunkCache {
+
+    private final DictZipChunkCache first;
+    private final DictZipChunkCache second;
+
+    /**
+     * Constructor.
+     * @param first first tier, such as memory cache.
+     * @param second second tier, such as disk cache.
+     */
+    public TieredChunkCache(final DictZipChunkCache first, final DictZipChunkCache second) {
+        this.first = first;
+        this.second = second;
+    }
+
+    @Override
+    public boolean get(final long fileId, final int index, final ByteBuffer dst) {
+        if (first.get(fileId, index, dst)) {
+            return true;
+        }
+        int start = dst.position();
+        if (!second.get(fileId, index, dst)) {
+            return false;
+        }
+        ByteBuffer data = dst.duplicate();
+        data.flip();
+        data.position(start);
+        first.put(fileId, index, data);
+        return true;
+    }
+
+    @Override
+    public void put(final long fileId, final int index, final ByteBuffer data) {
+        first.put(fileId, index, data);
+        second.put(fileId, index, data);
+    }
+}
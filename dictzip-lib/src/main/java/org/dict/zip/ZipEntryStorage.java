@@ -0,0 +1,197 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.zip.ZipException;
+
+/**
+ * Storage of dictzip file stored without compression in ZIP or JAR archive.
+ * <p>
+ *     It locates data of the entry from central directory and local header of the archive,
+ *     and reads the region of the archive directly, so no temporary file is needed.
+ *     The entry should be added with STORED method. ZIP64 archives are not supported.
+ * </p>
+ * @author Hiroshi Miura
+ */
+public final class ZipEntryStorage extends SliceStorage {
+
+    private static final int EOCD_SIG = 0x06054b50;
+    private static final int CEN_SIG = 0x02014b50;
+    private static final int LOC_SIG = 0x04034b50;
+    private static final int EOCD_LEN = 22;
+    private static final int CEN_LEN = 46;
+    private static final int LOC_LEN = 30;
+    private static final int MAX_COMMENT_LEN = 0xffff;
+    private static final int STORED = 0;
+
+    private final String entryName;
+
+    private ZipEntryStorage(final DictZipStorage archive, final long offset, final long length,
+                            final String entryName) throws IOException {
+        super(archive, offset, length);
+        this.entryName = entryName;
+    }
+
+    /**
+     * Open entry of archive file.
+     * @param archive path of ZIP or JAR file.
+     * @param entryName name of entry.
+     * @return storage of entry data.
+     * @throws IOException if an I/O error has occurred.
+     * @throws ZipException when entry is not found or compressed.
+     */
+    public static ZipEntryStorage open(final Path archive, final String entryName) throws IOException {
+        return open(FileChannelStorage.open(archive), entryName);
+    }
+
+    /**
+     * Open entry of archive in storage.
+     * <p>
+     *     The storage takes ownership of the archive storage and closes it on close().
+     * </p>
+     * @param archive storage of ZIP or JAR archive.
+     * @param entryName name of entry.
+     * @return storage of entry data.
+     * @throws IOException if an I/O error has occurred.
+     * @throws ZipException when entry is not found or compressed.
+     */
+    public static ZipEntryStorage open(final DictZipStorage archive, final String entryName) throws IOException {
+        try {
+            long[] region = locate(archive, entryName);
+            return new ZipEntryStorage(archive, region[0], region[1], entryName);
+        } catch (IOException | RuntimeException e) {
+            archive.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Open resource such as a dictionary bundled in class path.
+     * <p>
+     *     It accepts "jar:file:" URL of an entry and "file:" URL.
+     * </p>
+     * @param resource URL of resource.
+     * @return storage of resource data.
+     * @throws IOException if an I/O error has occurred or URL is not supported.
+     */
+    public static DictZipStorage open(final URL resource) throws IOException {
+        try {
+            if ("file".equals(resource.getProtocol())) {
+                return FileChannelStorage.open(Paths.get(resource.toURI()));
+            }
+            if ("jar".equals(resource.getProtocol())) {
+                String spec = resource.getPath();
+                int sep = spec.indexOf("!/");
+                if (sep > 0 && spec.startsWith("file:") && spec.indexOf("!/", sep + 2) < 0) {
+                    Path archive = Paths.get(new URL(spec.substring(0, sep)).toURI());
+                    // percent-decode only, '+' is a literal character in URL path.
+                    String entryName = URLDecoder.decode(spec.substring(sep + 2).replace("+", "%2B"), "UTF-8");
+                    return open(archive, entryName);
+                }
+            }
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            throw new IOException("Invalid resource URL: " + resource, e);
+        }
+        throw new IOException("Unsupported resource URL: " + resource);
+    }
+
+    /**
+     * Get name of entry.
+     * @return entry name.
+     */
+    public String getEntryName() {
+        return entryName;
+    }
+
+    private static long[] locate(final DictZipStorage archive, final String entryName) throws IOException {
+        long size = archive.size();
+        if (size < EOCD_LEN) {
+            throw new ZipException("Not a ZIP archive.");
+        }
+        // end of central directory record is followed by comment up to 64KB.
+        int tailLen = (int) Math.min(size, EOCD_LEN + MAX_COMMENT_LEN);
+        ByteBuffer tail = read(archive, size - tailLen, tailLen);
+        int eocd = -1;
+        for (int i = tailLen - EOCD_LEN; i >= 0; i--) {
+            if (tail.getInt(i) == EOCD_SIG) {
+                eocd = i;
+                break;
+            }
+        }
+        if (eocd < 0) {
+            throw new ZipException("Not a ZIP archive.");
+        }
+        int count = tail.getShort(eocd + 10) & 0xffff;
+        long cenSize = tail.getInt(eocd + 12) & 0xffffffffL;
+        long cenOffset = tail.getInt(eocd + 16) & 0xffffffffL;
+        if (count == 0xffff || cenSize == 0xffffffffL || cenOffset == 0xffffffffL) {
+            throw new ZipException("ZIP64 archive is not supported.");
+        }
+        if (cenOffset + cenSize > size || cenSize > Integer.MAX_VALUE) {
+            throw new ZipException("Corrupt ZIP archive.");
+        }
+        ByteBuffer cen = read(archive, cenOffset, (int) cenSize);
+        byte[] name = entryName.getBytes(StandardCharsets.UTF_8);
+        int pos = 0;
+        for (int i = 0; i < count; i++) {
+            if (pos + CEN_LEN > cenSize || cen.getInt(pos) != CEN_SIG) {
+                throw new ZipException("Corrupt ZIP archive.");
+            }
+            int method = cen.getShort(pos + 10) & 0xffff;
+            long compSize = cen.getInt(pos + 20) & 0xffffffffL;
+            long uncompSize = cen.getInt(pos + 24) & 0xffffffffL;
+            int nameLen = cen.getShort(pos + 28) & 0xffff;
+            int extraLen = cen.getShort(pos + 30) & 0xffff;
+            int commentLen = cen.getShort(pos + 32) & 0xffff;
+            long locOffset = cen.getInt(pos + 42) & 0xffffffffL;
+            if (pos + CEN_LEN + nameLen > cenSize) {
+                throw new ZipException("Corrupt ZIP archive.");
+            }
+            byte[] entry = new byte[nameLen];
+            cen.position(pos + CEN_LEN);
+            cen.get(entry);
+            if (Arrays.equals(name, entry)) {
+                if (method != STORED || compSize != uncompSize) {
+                    throw new ZipException("Entry is compressed: " + entryName);
+                }
+                if (compSize == 0xffffffffL || locOffset == 0xffffffffL) {
+                    throw new ZipException("ZIP64 archive is not supported.");
+                }
+                ByteBuffer loc = read(archive, locOffset, LOC_LEN);
+                if (loc.getInt(0) != LOC_SIG) {
+                    throw new ZipException("Corrupt ZIP archive.");
+                }
+                long dataOffset = locOffset + LOC_LEN + (loc.getShort(26) & 0xffff) + (loc.getShort(28) & 0xffff);
+                if (dataOffset + compSize > size) {
+                    throw new ZipException("Corrupt ZIP archive.");
+                }
+                return new long[] {dataOffset, compSize};
+            }
+            pos += CEN_LEN + nameLen + extraLen + commentLen;
+        }
+        throw new ZipException("Entry is not found: " + entryName);
+    }
+
+    private static ByteBuffer read(final DictZipStorage archive, final long position, final int len)
+            throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(len).order(ByteOrder.LITTLE_ENDIAN);
+        archive.readFully(position, buf);
+        buf.flip();
+        return buf;
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test of DictZipAsyncReader.
+ * @author Hiroshi Miura
+ */
+public class DictZipAsyncReaderTest {
+
+    private final Path dataFile = Paths.get(this.getClass().getResource("/test.dict.dz").getFile());
+    private final Path expectedFile = Paths.get(this.getClass().getResource("/test.dict.expected").getFile());
+
+    private static byte[] toArray(final ByteBuffer buffer) {
+        byte[] result = new byte[buffer.remaining()];
+        buffer.duplicate().get(result);
+        return result;
+    }
+
+    /**
+     * Test reads across chunks, at end of data and in batch.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testReadAsync() throws Exception {
+        byte[] expected = Files.readAllBytes(expectedFile);
+        try (DictZipAsyncReader reader = DictZipAsyncReader.open(dataFile)) {
+            ByteBuffer data = reader.readAsync(58000, 200000).get(10, TimeUnit.SECONDS);
+            assertArrayEquals(Arrays.copyOfRange(expected, 58000, 258000), toArray(data));
+            data = reader.readAsync(expected.length - 10, 100).get(10, TimeUnit.SECONDS);
+            assertArrayEquals(Arrays.copyOfRange(expected, expected.length - 10, expected.length), toArray(data));
+            assertEquals(0, reader.readAsync(expected.length, 100).get().remaining());
+            List<CompletableFuture<ByteBuffer>> results = reader.readAsync(new long[] {0, 100000, 300000},
+                    new int[] {100, 100, 100});
+            CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+            assertArrayEquals(Arrays.copyOfRange(expected, 100000, 100100), toArray(results.get(1).get()));
+            assertArrayEquals(Arrays.copyOfRange(expected, 300000, 300100), toArray(results.get(2).get()));
+        }
+    }
+
+    /**
+     * Test chunks in cache are looked up on the executor, and returned without decode.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testCache() throws Exception {
+        byte[] expected = Files.readAllBytes(expectedFile);
+        OffHeapChunkCache cache = new OffHeapChunkCache(1024 * 1024);
+        List<Runnable> tasks = new ArrayList<>();
+        Executor executor = tasks::add;
+        try (DictZipAsyncReader reader = DictZipAsyncReader.open(dataFile, executor)) {
+            reader.getReader().setChunkCache(cache);
+            reader.getReader().readChunk(0);
+            CompletableFuture<ByteBuffer> result = reader.readAsync(10, 100);
+            assertFalse(result.isDone());
+            assertEquals(1, tasks.size());
+            tasks.get(0).run();
+            assertTrue(result.isDone());
+            assertArrayEquals(Arrays.copyOfRange(expected, 10, 110), toArray(result.get()));
+            assertEquals(1, tasks.size());
+        }
+    }
+
+    /**
+     * Test cancelled read is not decoded.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testCancel() throws Exception {
+        List<Runnable> tasks = new ArrayList<>();
+        Executor executor = task -> {
+            synchronized (tasks) {
+                tasks.add(task);
+                tasks.notifyAll();
+            }
+        };
+        OffHeapChunkCache cache = new OffHeapChunkCache(1024 * 1024);
+        try (DictZipAsyncReader reader = DictZipAsyncReader.open(dataFile, executor)) {
+            reader.getReader().setChunkCache(cache);
+            CompletableFuture<ByteBuffer> result = reader.readAsync(0, 100);
+            synchronized (tasks) {
+                long deadline = System.currentTimeMillis() + 10000;
+                while (tasks.isEmpty() && System.currentTimeMillis() < deadline) {
+                    tasks.wait(100);
+                }
+            }
+            assertEquals(1, tasks.size());
+            assertTrue(result.cancel(true));
+            tasks.get(0).run();
+            assertTrue(result.isCancelled());
+            assertEquals(0, cache.getChunkCount());
+        }
+    }
+
+    /**
+     * Test each run of missing chunks is fetched and decoded once, skipping chunks in cache.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testMissRuns() throws Exception {
+        byte[] expected = Files.readAllBytes(expectedFile);
+        OffHeapChunkCache delegate = new OffHeapChunkCache(1024 * 1024);
+        List<Integer> puts = new ArrayList<>();
+        DictZipChunkCache cache = new DictZipChunkCache() {
+            @Override
+            public boolean get(final long fileId, final int index, final ByteBuffer dst) {
+                return delegate.get(fileId, index, dst);
+            }
+
+            @Override
+            public void put(final long fileId, final int index, final ByteBuffer data) {
+                synchronized (puts) {
+                    puts.add(index);
+                }
+                delegate.put(fileId, index, data);
+            }
+        };
+        List<Runnable> tasks = new ArrayList<>();
+        Executor executor = task -> {
+            synchronized (tasks) {
+                tasks.add(task);
+                tasks.notifyAll();
+            }
+        };
+        try (DictZipAsyncReader reader = DictZipAsyncReader.open(dataFile, executor)) {
+            reader.getReader().setChunkCache(cache);
+            reader.getReader().readChunk(2);
+            puts.clear();
+            CompletableFuture<ByteBuffer> result = reader.readAsync(100000, 100000);
+            // plan, then decode of each run.
+            tasks.get(0).run();
+            synchronized (tasks) {
+                long deadline = System.currentTimeMillis() + 10000;
+                while (tasks.size() < 3 && System.currentTimeMillis() < deadline) {
+                    tasks.wait(100);
+                }
+            }
+            assertEquals(3, tasks.size());
+            tasks.get(1).run();
+            assertFalse(result.isDone());
+            tasks.get(2).run();
+            assertArrayEquals(Arrays.copyOfRange(expected, 100000, 200000), toArray(result.get()));
+            Collections.sort(puts);
+            assertEquals(Arrays.asList(1, 3), puts);
+        }
+    }
+
+    /**
+     * Test bad ranges fail the future instead of throwing.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testBadRange() throws Exception {
+        try (DictZipAsyncReader reader = DictZipAsyncReader.open(dataFile)) {
+            CompletableFuture<ByteBuffer> result = reader.readAsync(-1, 100);
+            assertTrue(result.isCompletedExceptionally());
+            ExecutionException e = assertThrows(ExecutionException.class, result::get);
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+            assertTrue(reader.readAsync(0, -1).isCompletedExceptionally());
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test of DictZipCacheManager.
+ * @author Hiroshi Miura
+ */
+public class DictZipCacheManagerTest {
+
+    private final Path dataFile = Paths.get(this.getClass().getResource("/test.dict.dz").getFile());
+    private final Path expectedFile = Paths.get(this.getClass().getResource("/test.dict.expected").getFile());
+
+    private static boolean access(final DictZipCacheManager manager, final long fileId, final int index) {
+        if (manager.get(fileId, index, ByteBuffer.allocate(1000))) {
+            return true;
+        }
+        manager.put(fileId, index, ByteBuffer.allocate(1000));
+        return false;
+    }
+
+    /**
+     * Test scan does not flush hot chunks.
+     */
+    @Test
+    public void testScanResistance() {
+        DictZipCacheManager manager = new DictZipCacheManager(10000);
+        for (int n = 0; n < 5; n++) {
+            for (int i = 0; i < 5; i++) {
+                access(manager, 1, i);
+            }
+        }
+        for (int i = 0; i < 100; i++) {
+            access(manager, 2, i);
+        }
+        assertTrue(manager.getUsedBytes() <= 10000);
+        assertEquals(95, manager.getRejectCount());
+        for (int i = 0; i < 5; i++) {
+            assertTrue(access(manager, 1, i));
+        }
+        DictZipCacheManager.FileStats hot = manager.getStats(1);
+        assertEquals(25, hot.getHitCount());
+        assertEquals(5, hot.getMissCount());
+        assertEquals(5, hot.getChunkCount());
+        assertEquals(5000, hot.getOccupancy());
+        DictZipCacheManager.FileStats cold = manager.getStats(2);
+        assertEquals(0, cold.getHitRate());
+        assertEquals(5000, cold.getOccupancy());
+        assertEquals(2, manager.getAllStats().size());
+        manager.invalidate(2);
+        assertEquals(5000, manager.getUsedBytes());
+        assertEquals(0, manager.getStats(2).getChunkCount());
+    }
+
+    /**
+     * Test readers share budget.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testReaders() throws Exception {
+        byte[] expected = Files.readAllBytes(expectedFile);
+        DictZipCacheManager manager = new DictZipCacheManager(1024 * 1024);
+        for (int n = 0; n < 2; n++) {
+            try (DictZipReader reader = new DictZipReader(dataFile)) {
+                reader.setChunkCache(manager);
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                reader.transferTo(0, expected.length, Channels.newChannel(out));
+                assertArrayEquals(expected, out.toByteArray());
+                DictZipCacheManager.FileStats stats = manager.getStats(reader.getFileId());
+                assertEquals(7, stats.getMissCount());
+                assertEquals(7 * n, stats.getHitCount());
+                assertEquals(expected.length, stats.getOccupancy());
+            }
+        }
+    }
+
+    /**
+     * Test segmented cache with concurrent threads.
+     */
+    @Test
+    public void testSegments() throws Exception {
+        DictZipCacheManager manager = new DictZipCacheManager(64L * 1024 * 1024);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final long fileId = t;
+            threads[t] = new Thread(() -> {
+                for (int n = 0; n < 2; n++) {
+                    for (int i = 0; i < 200; i++) {
+                        byte[] chunk = new byte[1000];
+                        ByteBuffer dst = ByteBuffer.wrap(chunk);
+                        if (manager.get(fileId, i, dst)) {
+                            assertEquals(1000, dst.position());
+                            assertEquals((byte) (fileId + i), chunk[999]);
+                        } else {
+                            chunk[999] = (byte) (fileId + i);
+                            manager.put(fileId, i, ByteBuffer.wrap(chunk));
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(4 * 200 * 1000, manager.getUsedBytes());
+        assertEquals(0, manager.getRejectCount());
+        assertEquals(4, manager.getAllStats().size());
+        for (int t = 0; t < threads.length; t++) {
+            DictZipCacheManager.FileStats stats = manager.getStats(t);
+            assertEquals(200, stats.getHitCount());
+            assertEquals(200, stats.getMissCount());
+            assertEquals(200, stats.getChunkCount());
+        }
+        manager.invalidate(0);
+        assertEquals(3 * 200 * 1000, manager.getUsedBytes());
+    }
+}
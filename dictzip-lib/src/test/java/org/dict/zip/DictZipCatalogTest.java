@@ -0,0 +1,91 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test of DictZipCatalog.
+ * @author Hiroshi Miura
+ */
+public class DictZipCatalogTest {
+
+    /**
+     * Test readers opened through catalog.
+     * @param tempDir JUnit5 temporary directory.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testCatalog(@TempDir final Path tempDir) throws Exception {
+        Path dict = tempDir.resolve("test.dict.dz");
+        Files.copy(Paths.get(this.getClass().getResource("/test.dict.dz").getFile()), dict);
+        byte[] expected = Files.readAllBytes(Paths.get(this.getClass().getResource("/test.dict.expected").getFile()));
+        byte[] data = new byte[3000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) ('a' + i * 7 % 23);
+        }
+        Path records = tempDir.resolve("records.dict.dz");
+        try (DictZipOutputStream out = new DictZipOutputStream(new RandomAccessOutputStream(
+                new RandomAccessFile(records.toFile(), "rw")), data.length)) {
+            out.setChunkCRC(true);
+            out.write(data, 0, data.length);
+        }
+        Path catalogFile = tempDir.resolve("dict.catalog");
+        DictZipCatalog.build(catalogFile, Arrays.asList(dict, records));
+        DictZipCatalog catalog = DictZipCatalog.open(catalogFile);
+        assertEquals(2, catalog.size());
+        assertTrue(catalog.isValid(dict));
+        DictZipHeader header = catalog.getHeader(dict);
+        DictZipHeader original = DictZipHeader.readHeader(dict.toString());
+        assertEquals(original.getChunkCount(), header.getChunkCount());
+        for (int i = 0; i < header.getChunkCount(); i++) {
+            assertEquals(original.getChunkOffset(i), header.getChunkOffset(i));
+        }
+        assertEquals(original.getMemberLength(), header.getMemberLength());
+        assertTrue(catalog.getHeader(records).hasChunkCRC());
+        try (DictZipReader reader = catalog.openReader(records)) {
+            assertEquals(data.length, reader.getLength());
+            assertEquals(ByteBuffer.wrap(data), reader.readChunk(0));
+        }
+        try (DictZipInputStream din = catalog.openInputStream(dict)) {
+            assertEquals(expected.length, din.getLength());
+            byte[] buf = new byte[100];
+            din.seek(200000);
+            din.readFully(buf);
+            assertTrue(Arrays.equals(Arrays.copyOfRange(expected, 200000, 200100), buf));
+            din.seek(0);
+            byte[] all = new byte[expected.length];
+            din.readFully(all);
+            assertTrue(Arrays.equals(expected, all));
+            assertEquals(-1, din.read(buf, 0, 1));
+        }
+        // stale entry falls back to the file.
+        Files.setLastModifiedTime(dict, FileTime.fromMillis(Files.getLastModifiedTime(dict).toMillis() - 10000));
+        assertFalse(catalog.isValid(dict));
+        assertNull(catalog.getHeader(dict));
+        try (DictZipReader reader = catalog.openReader(dict)) {
+            assertEquals(expected.length, reader.getLength());
+        }
+        assertFalse(catalog.isValid(tempDir.resolve("records.txt")));
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test of DictZipChannelPool.
+ * @author Hiroshi Miura
+ */
+public class DictZipChannelPoolTest {
+
+    /**
+     * Test readers sharing bounded channels.
+     * @param tempDir JUnit5 temporary directory.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testPooledReaders(@TempDir final Path tempDir) throws Exception {
+        Path source = Paths.get(this.getClass().getResource("/test.dict.dz").getFile());
+        byte[] expected = Files.readAllBytes(Paths.get(this.getClass().getResource("/test.dict.expected")
+                .getFile()));
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Path file = tempDir.resolve("test" + i + ".dict.dz");
+            Files.copy(source, file);
+            files.add(file);
+        }
+        try (DictZipChannelPool pool = new DictZipChannelPool(2)) {
+            List<DictZipReader> readers = new ArrayList<>();
+            for (Path file : files) {
+                readers.add(new DictZipReader(pool, file));
+            }
+            assertTrue(pool.getOpenCount() <= 2);
+            for (int i = 0; i < 7; i++) {
+                for (DictZipReader reader : readers) {
+                    ByteBuffer chunk = reader.readChunk(i);
+                    assertEquals(ByteBuffer.wrap(expected, i * 58315, chunk.remaining()), chunk);
+                    assertTrue(pool.getOpenCount() <= 2);
+                }
+            }
+            // busy channel is not closed.
+            try (DictZipChannelPool.Handle handle = pool.acquire(files.get(0))) {
+                FileChannel channel = handle.getChannel();
+                for (int i = 1; i < 4; i++) {
+                    readers.get(i).readChunk(0);
+                }
+                assertTrue(channel.isOpen());
+                assertEquals(2, pool.getOpenCount());
+            }
+            for (DictZipReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * Test closed pool.
+     * @param tempDir JUnit5 temporary directory.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testClose(@TempDir final Path tempDir) throws Exception {
+        Path file = tempDir.resolve("test.dict.dz");
+        Files.copy(Paths.get(this.getClass().getResource("/test.dict.dz").getFile()), file);
+        DictZipChannelPool pool = new DictZipChannelPool(1);
+        DictZipChannelPool.Handle handle = pool.acquire(file);
+        pool.close();
+        assertTrue(handle.getChannel().isOpen());
+        handle.close();
+        assertEquals(0, pool.getOpenCount());
+        Assertions.assertThrows(IOException.class, () -> pool.acquire(file));
+    }
+
+    /**
+     * Test interrupt of a reader does not fail other readers of the shared channel.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testInterruptedReader() throws Exception {
+        Path file = Paths.get(this.getClass().getResource("/test.dict.dz").getFile());
+        byte[] expected = Files.readAllBytes(Paths.get(this.getClass().getResource("/test.dict.expected")
+                .getFile()));
+        try (DictZipChannelPool pool = new DictZipChannelPool(2)) {
+            DictZipReader reader = new DictZipReader(pool, file);
+            AtomicBoolean running = new AtomicBoolean(true);
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            List<Thread> readers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                Thread thread = new Thread(() -> {
+                    try {
+                        while (running.get()) {
+                            for (int i = 0; i < 7; i++) {
+                                ByteBuffer chunk = reader.readChunk(i);
+                                assertEquals(ByteBuffer.wrap(expected, i * 58315, chunk.remaining()), chunk);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                });
+                thread.start();
+                readers.add(thread);
+            }
+            // a reader which is interrupted repeatedly closes the shared channel.
+            Thread victim = new Thread(() -> {
+                while (running.get()) {
+                    try {
+                        reader.readChunk(3);
+                    } catch (IOException ignored) {
+                        Thread.interrupted();
+                    }
+                }
+            });
+            victim.start();
+            long deadline = System.currentTimeMillis() + 2000;
+            while (System.currentTimeMillis() < deadline && failure.get() == null) {
+                victim.interrupt();
+                Thread.sleep(1);
+            }
+            running.set(false);
+            victim.interrupt();
+            victim.join();
+            for (Thread thread : readers) {
+                thread.join();
+            }
+            if (failure.get() != null) {
+                throw new AssertionError(failure.get());
+            }
+            reader.close();
+        }
+    }
+
+    /**
+     * Test reads of a storage do not take the pool lock once the channel is open.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testLockFreeRead() throws Exception {
+        Path file = Paths.get(this.getClass().getResource("/test.dict.dz").getFile());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (DictZipChannelPool pool = new DictZipChannelPool(2)) {
+            DictZipStorage storage = pool.storage(file);
+            long size = storage.size();
+            ByteBuffer first = ByteBuffer.allocate(10);
+            storage.readFully(0, first);
+            synchronized (pool) {
+                Future<ByteBuffer> result = executor.submit(() -> {
+                    assertEquals(size, storage.size());
+                    ByteBuffer dst = ByteBuffer.allocate(10);
+                    storage.readFully(0, dst);
+                    return dst;
+                });
+                assertEquals(first.flip(), result.get(10, TimeUnit.SECONDS).flip());
+            }
+            assertEquals(1, pool.getOpenCount());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
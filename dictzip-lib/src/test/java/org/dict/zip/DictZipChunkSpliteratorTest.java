@@ -0,0 +1,75 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test of DictZipChunkSpliterator.
+ * @author Hiroshi Miura
+ */
+public class DictZipChunkSpliteratorTest {
+
+    private final Path dataFile = Paths.get(this.getClass().getResource("/test.dict.dz").getFile());
+    private final Path expectedFile = Paths.get(this.getClass().getResource("/test.dict.expected").getFile());
+
+    /**
+     * Test chunks decoded in parallel reproduce original data.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testParallelChunks() throws Exception {
+        byte[] expected = Files.readAllBytes(expectedFile);
+        List<DictZipChunk> chunks;
+        try (Stream<DictZipChunk> stream = DictZipFiles.chunks(dataFile)) {
+            assertTrue(stream.isParallel());
+            chunks = stream.sorted(Comparator.comparingInt(DictZipChunk::getIndex))
+                    .collect(Collectors.toList());
+        }
+        assertEquals(7, chunks.size());
+        byte[] actual = new byte[expected.length];
+        for (DictZipChunk chunk : chunks) {
+            assertEquals(chunk.getIndex() * 58315L, chunk.getOffset());
+            ByteBuffer data = chunk.getData();
+            data.get(actual, (int) chunk.getOffset(), data.remaining());
+        }
+        assertTrue(java.util.Arrays.equals(expected, actual));
+    }
+
+    /**
+     * Test split keeps exact sizes.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testTrySplit() throws Exception {
+        try (DictZipReader reader = new DictZipReader(dataFile)) {
+            DictZipChunkSpliterator spliterator = new DictZipChunkSpliterator(reader);
+            assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED));
+            assertTrue(spliterator.hasCharacteristics(Spliterator.SUBSIZED));
+            assertEquals(7, spliterator.estimateSize());
+            Spliterator<DictZipChunk> prefix = spliterator.trySplit();
+            assertEquals(3, prefix.estimateSize());
+            assertEquals(4, spliterator.estimateSize());
+            long total = reader.chunks().mapToLong(c -> c.getData().remaining()).sum();
+            assertEquals(reader.getLength(), total);
+        }
+    }
+}
@@ -7,17 +7,25 @@
  */
 package org.dict.zip;
 
+import org.apache.commons.io.IOUtils;
 import org.dict.zip.DictZipHeader.CompressionLevel;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import tokyo.northside.io.FileUtils2;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
@@ -219,4 +227,48 @@ public class DictZipHeaderTest {
         assertTrue(FileUtils2.contentEquals(testFile, new File(expectedHeader), 8, 45));
         testFile.deleteOnExit();
     }
+
+    /**
+     * Test of application subfields in extra field.
+     *
+     * @param tempDir JUnit5 temporary directory.
+     * @throws Exception if file I/O error occurred.
+     */
+    @Test
+    public void testSubfield(@TempDir final Path tempDir) throws Exception {
+        byte[] data = new byte[3000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) ('a' + i % 26);
+        }
+        byte[] index = new byte[1000];
+        for (int i = 0; i < index.length; i++) {
+            index[i] = (byte) i;
+        }
+        File testFile = tempDir.resolve("DictZipSubfield.dz").toFile();
+        try (DictZipOutputStream out = new DictZipOutputStream(new RandomAccessOutputStream(
+                new RandomAccessFile(testFile, "rw")), 1024, data.length)) {
+            out.setChunkCRC(true);
+            out.putSubfield("IX", index);
+            out.putSubfield("MD", new byte[] {1, 2, 3});
+            Assertions.assertThrows(IllegalArgumentException.class, () -> out.putSubfield("RA", index));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> out.putSubfield("ABC", index));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> out.putSubfield("BG", new byte[70000]));
+            out.write(data, 0, data.length);
+        }
+        DictZipHeader header = DictZipHeader.readHeader(testFile.getAbsolutePath());
+        assertEquals("dzip", header.getType());
+        assertTrue(header.hasChunkCRC());
+        assertEquals(Arrays.asList("IX", "MD"), new ArrayList<>(header.getSubfieldIds()));
+        assertTrue(Arrays.equals(index, header.getSubfield("IX")));
+        assertNull(header.getSubfield("ZZ"));
+        try (DictZipInputStream din = new DictZipInputStream(testFile.getAbsolutePath())) {
+            assertTrue(Arrays.equals(new byte[] {1, 2, 3}, din.getSubfield("MD")));
+            byte[] actual = new byte[data.length];
+            din.readFully(actual);
+            assertTrue(Arrays.equals(data, actual));
+        }
+        try (GZIPInputStream in = new GZIPInputStream(new FileInputStream(testFile))) {
+            assertEquals(data.length, IOUtils.toByteArray(in).length);
+        }
+    }
 }
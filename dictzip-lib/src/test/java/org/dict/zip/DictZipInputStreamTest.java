@@ -10,14 +10,25 @@ package org.dict.zip;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import tokyo.northside.io.IOUtils2;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.ZipException;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -370,4 +381,206 @@ public class DictZipInputStreamTest {
             assertTrue(IOUtils2.contentEquals(din, in2, 0, len));
         }
     }
+
+    /**
+     * Test forward only decoding from non-seekable stream.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testSequentialRead() throws Exception {
+        byte[] expected = Files.readAllBytes(Paths.get(this.getClass().getResource("/test.dict.expected").getFile()));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DictZipInputStream din = new DictZipInputStream(new FileInputStream(dataFile), 512)) {
+            assertFalse(din.markSupported());
+            byte[] buf = new byte[4096];
+            int len;
+            while ((len = din.read(buf, 0, buf.length)) > 0) {
+                out.write(buf, 0, len);
+            }
+            assertEquals(383783, din.getLength());
+            assertEquals(0x024d1f37L, din.getCrc());
+            assertEquals(136856, din.getCompLength());
+            Assertions.assertThrows(IOException.class, () -> din.seek(0));
+        }
+        assertTrue(Arrays.equals(expected, out.toByteArray()));
+    }
+
+    /**
+     * Test forward only decoding detects CRC mismatch in trailer.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testSequentialReadCorruptTrailer() throws Exception {
+        byte[] data = Files.readAllBytes(Paths.get(dataFile));
+        data[data.length - 8] ^= 0x01;
+        try (DictZipInputStream din = new DictZipInputStream(
+                Channels.newChannel(new ByteArrayInputStream(data)))) {
+            din.setIntegrityCheck(DictZipInputStream.IntegrityCheck.STREAM);
+            byte[] buf = new byte[4096];
+            Assertions.assertThrows(ZipException.class, () -> {
+                while (din.read(buf, 0, buf.length) > 0) {
+                    // read to the end.
+                }
+            });
+        }
+    }
+
+    /**
+     * Test forward only decoding detects length mismatch in trailer without CRC check.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testSequentialReadCorruptLength() throws Exception {
+        byte[] data = Files.readAllBytes(Paths.get(dataFile));
+        data[data.length - 4] ^= 0x01;
+        try (DictZipInputStream din = new DictZipInputStream(
+                Channels.newChannel(new ByteArrayInputStream(data)))) {
+            assertEquals(DictZipInputStream.IntegrityCheck.NONE, din.getIntegrityCheck());
+            byte[] buf = new byte[4096];
+            Assertions.assertThrows(ZipException.class, () -> {
+                while (din.read(buf, 0, buf.length) > 0) {
+                    // read to the end.
+                }
+            });
+        }
+    }
+
+    /**
+     * Test integrity check modes with corrupt CRC in trailer.
+     * @param tempDir JUnit5 temporary directory.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testIntegrityCheck(@TempDir final Path tempDir) throws Exception {
+        byte[] data = Files.readAllBytes(Paths.get(dataFile));
+        data[data.length - 8] ^= 0x01;
+        Path corrupt = tempDir.resolve("corrupt.dict.dz");
+        Files.write(corrupt, data);
+        byte[] buf = new byte[8192];
+        try (DictZipInputStream din = DictZipFiles.newDictZipInputStream(corrupt)) {
+            assertEquals(DictZipInputStream.IntegrityCheck.NONE, din.getIntegrityCheck());
+            din.setIntegrityCheck(DictZipInputStream.IntegrityCheck.STREAM);
+            // no verification after seek, because running CRC is meaningless.
+            din.seek(100);
+            while (din.read(buf, 0, buf.length) > 0) {
+                // read to the end.
+            }
+            din.seek(0);
+            Assertions.assertThrows(ZipException.class, () -> {
+                while (din.read(buf, 0, buf.length) > 0) {
+                    // read to the end.
+                }
+            });
+            din.setIntegrityCheck(DictZipInputStream.IntegrityCheck.NONE);
+            din.seek(0);
+            long total = 0;
+            int len;
+            while ((len = din.read(buf, 0, buf.length)) > 0) {
+                total += len;
+            }
+            assertEquals(din.getLength(), total);
+        }
+        // files of earlier releases with wrong CRC are checked by length.
+        assertTrue(DictZipFiles.checkDictZipFile(corrupt));
+        Assertions.assertThrows(ZipException.class, () -> DictZipFiles.checkDictZipFile(corrupt.toString(),
+                DictZipInputStream.IntegrityCheck.STREAM));
+        try (DictZipInputStream din = DictZipFiles.newDictZipInputStream(corrupt)) {
+            assertTrue(DictZipFiles.checkDictZipInputStream(din));
+            Assertions.assertThrows(ZipException.class, () -> DictZipFiles.checkDictZipInputStream(din,
+                    DictZipInputStream.IntegrityCheck.STREAM));
+            assertEquals(DictZipInputStream.IntegrityCheck.NONE, din.getIntegrityCheck());
+        }
+    }
+
+    /**
+     * Test CHUNK integrity check with corrupt CRC table of chunks.
+     * @param tempDir JUnit5 temporary directory.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testIntegrityCheckChunk(@TempDir final Path tempDir) throws Exception {
+        byte[] data = new byte[2000];
+        Arrays.fill(data, (byte) 'x');
+        Path path = tempDir.resolve("chunkcrc.dict.dz");
+        try (DictZipOutputStream out = new DictZipOutputStream(new RandomAccessOutputStream(
+                new RandomAccessFile(path.toFile(), "rw")), 512, data.length)) {
+            out.setChunkCRC(true);
+            out.write(data, 0, data.length);
+        }
+        byte[] buf = new byte[700];
+        try (DictZipInputStream din = DictZipFiles.newDictZipInputStream(path)) {
+            din.setIntegrityCheck(DictZipInputStream.IntegrityCheck.CHUNK);
+            din.seek(1000);
+            din.readFully(buf, 0, 700);
+            while (din.read(buf, 0, buf.length) > 0) {
+                // read to the end.
+            }
+        }
+        // flip CRC of chunk 1 and fix header CRC: CRC table follows RA field of 4 chunks.
+        byte[] bytes = Files.readAllBytes(path);
+        int headerLength = DictZipHeader.readHeader(path.toString()).getHeaderLength();
+        bytes[12 + 10 + 4 * 2 + 8 + 4] ^= 0x01;
+        CRC32 headerCrc = new CRC32();
+        headerCrc.update(bytes, 0, headerLength - 2);
+        bytes[headerLength - 2] = (byte) headerCrc.getValue();
+        bytes[headerLength - 1] = (byte) (headerCrc.getValue() >> 8);
+        Path corrupt = tempDir.resolve("corrupt.dict.dz");
+        Files.write(corrupt, bytes);
+        try (DictZipInputStream din = DictZipFiles.newDictZipInputStream(corrupt)) {
+            din.setIntegrityCheck(DictZipInputStream.IntegrityCheck.CHUNK);
+            din.readFully(buf, 0, 512);
+            din.seek(1100);
+            din.readFully(buf, 0, 500);
+            din.seek(600);
+            Assertions.assertThrows(ZipException.class, () -> din.readFully(buf, 0, 500));
+            din.setIntegrityCheck(DictZipInputStream.IntegrityCheck.NONE);
+            din.seek(600);
+            din.readFully(buf, 0, 500);
+        }
+        try (DictZipReader reader = new DictZipReader(corrupt)) {
+            reader.readChunk(0);
+            Assertions.assertThrows(ZipException.class, () -> reader.readChunk(1));
+        }
+    }
+
+    /**
+     * Test seek with restart points in chunks.
+     * @param tempDir JUnit5 temporary directory.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testSeekRestartPoints(@TempDir final Path tempDir) throws Exception {
+        byte[] data = new byte[5000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) ('a' + i * 13 % 29);
+        }
+        Path path = tempDir.resolve("restart.dict.dz");
+        try (DictZipOutputStream out = new DictZipOutputStream(new RandomAccessOutputStream(
+                new RandomAccessFile(path.toFile(), "rw")), 2048, data.length)) {
+            out.setChunkCRC(true);
+            out.setRestartInterval(500);
+            for (int off = 0; off < data.length; off += 300) {
+                out.write(data, off, Math.min(300, data.length - off));
+            }
+        }
+        DictZipHeader header = DictZipHeader.readHeader(path.toString());
+        assertEquals(500, header.getRestartInterval());
+        assertTrue(header.hasChunkCRC());
+        assertTrue(header.getPosition(2048 + 1700) > header.getChunkOffset(1));
+        assertEquals(200, header.getOffset(2048 + 1700));
+        // restart point beyond end of data is not recorded in the last chunk.
+        assertEquals(header.getPosition(4096 + 500), header.getPosition(4096 + 1600));
+        byte[] buf = new byte[400];
+        for (DictZipInputStream.IntegrityCheck check : DictZipInputStream.IntegrityCheck.values()) {
+            try (DictZipInputStream din = DictZipFiles.newDictZipInputStream(path)) {
+                din.setIntegrityCheck(check);
+                for (int pos : new int[] {3990, 0, 499, 500, 2047, 3700, 4600}) {
+                    din.seek(pos);
+                    din.readFully(buf, 0, 400);
+                    assertTrue(Arrays.equals(Arrays.copyOfRange(data, pos, pos + 400), buf));
+                }
+            }
+        }
+        assertTrue(DictZipFiles.checkDictZipFile(path));
+    }
 }
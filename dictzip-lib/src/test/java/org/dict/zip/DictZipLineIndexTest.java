@@ -0,0 +1,89 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test of DictZipLineIndex and DictZipLineReader.
+ * @author Hiroshi Miura
+ */
+public class DictZipLineIndexTest {
+
+    private static List<String> sampleLines() {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            StringBuilder sb = new StringBuilder("line ").append(i);
+            for (int j = 0; j < i % 11; j++) {
+                sb.append(" \u8f9e\u66f8");
+            }
+            lines.add(i % 17 == 0 ? "" : sb.toString());
+        }
+        return lines;
+    }
+
+    /**
+     * Test random access to lines with sidecar index.
+     * @param tempDir JUnit5 temporary directory.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testReadLine(@TempDir final Path tempDir) throws Exception {
+        List<String> lines = sampleLines();
+        byte[] data = (String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8);
+        Path path = DictZipRecordSpliteratorTest.createDictZip(tempDir, data, 100);
+        Path sidecar = tempDir.resolve("records.lidx");
+        for (int interval : new int[] {0, 1, 3}) {
+            try (DictZipReader reader = new DictZipReader(path)) {
+                DictZipLineIndex.build(reader, interval).write(sidecar);
+            }
+            DictZipLineIndex index = DictZipLineIndex.read(sidecar);
+            assertEquals(interval, index.getSampleInterval());
+            try (DictZipLineReader lineReader = new DictZipLineReader(DictZipFiles.newDictZipInputStream(path),
+                    index, StandardCharsets.UTF_8)) {
+                assertEquals(lines.size(), lineReader.getLineCount());
+                for (int i = lines.size() - 1; i >= 0; i -= 7) {
+                    assertEquals(lines.get(i), lineReader.readLine(i));
+                }
+                assertEquals(lines.subList(95, 140), lineReader.readLines(95, 45));
+                assertEquals(lines.subList(290, 300), lineReader.readLines(290, 20));
+            }
+        }
+    }
+
+    /**
+     * Test last line without line feed and out of range access.
+     * @param tempDir JUnit5 temporary directory.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testLastLine(@TempDir final Path tempDir) throws Exception {
+        List<String> lines = sampleLines();
+        byte[] data = String.join("\n", lines).getBytes(StandardCharsets.UTF_8);
+        Path path = DictZipRecordSpliteratorTest.createDictZip(tempDir, data, 64);
+        DictZipLineIndex index;
+        try (DictZipReader reader = new DictZipReader(path)) {
+            index = DictZipLineIndex.build(reader);
+        }
+        try (DictZipLineReader lineReader = new DictZipLineReader(DictZipFiles.newDictZipInputStream(path),
+                index, StandardCharsets.UTF_8)) {
+            assertEquals(lines.size(), lineReader.getLineCount());
+            assertEquals(lines.get(lines.size() - 1), lineReader.readLine(lines.size() - 1));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> lineReader.readLine(lines.size()));
+        }
+    }
+}
@@ -16,8 +16,12 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.CRC32;
 import java.util.zip.Checksum;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -134,6 +138,86 @@ public class DictZipOutputStreamTest {
         }
     }
 
+    /**
+     * Test gzip trailer holds CRC of uncompressed data.
+     * @param tempDir JUnit5 temporary directory.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testTrailerCrc(@TempDir final Path tempDir) throws Exception {
+        byte[] data = new byte[2000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) ('a' + i % 23);
+        }
+        File testOutFile = tempDir.resolve("DictZipCrc.txt.dz").toFile();
+        try (TestDictZipOutputStream out = new TestDictZipOutputStream(new RandomAccessOutputStream(
+                new RandomAccessFile(testOutFile, "rw")), 512, data.length)) {
+            out.write(data, 0, data.length);
+            CRC32 expected = new CRC32();
+            expected.update(data);
+            assertEquals(expected.getValue(), out.getChecksum().getValue());
+        }
+        // GZIPInputStream verifies CRC and length in trailer.
+        byte[] actual = new byte[data.length];
+        try (GZIPInputStream in = new GZIPInputStream(new FileInputStream(testOutFile))) {
+            int off = 0;
+            int len;
+            while ((len = in.read(actual, off, actual.length - off)) > 0) {
+                off += len;
+            }
+            assertEquals(-1, in.read());
+        }
+        assertTrue(Arrays.equals(data, actual));
+    }
+
+    /**
+     * Test of CRC table of chunks written with partial writes across chunks.
+     * @param tempDir JUnit5 temporary directory.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testChunkCrc(@TempDir final Path tempDir) throws Exception {
+        byte[] data = new byte[2000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) ('a' + i * 7 % 31);
+        }
+        File testOutFile = tempDir.resolve("DictZipChunkCrc.txt.dz").toFile();
+        try (DictZipOutputStream out = new DictZipOutputStream(new RandomAccessOutputStream(
+                new RandomAccessFile(testOutFile, "rw")), 512, data.length)) {
+            out.setChunkCRC(true);
+            for (int off = 0; off < data.length; off += 300) {
+                out.write(data, off, Math.min(300, data.length - off));
+            }
+            Assertions.assertThrows(IOException.class, () -> out.setChunkCRC(false));
+        }
+        DictZipHeader header = DictZipHeader.readHeader(testOutFile.getAbsolutePath());
+        assertEquals("dzip", header.getType());
+        assertTrue(header.hasChunkCRC());
+        assertEquals(4, header.getChunkCount());
+        for (int i = 0; i < header.getChunkCount(); i++) {
+            CRC32 expected = new CRC32();
+            expected.update(data, i * 512, Math.min(512, data.length - i * 512));
+            assertEquals(expected.getValue(), header.getChunkCRC(i));
+        }
+        // ordinary gzip reader ignores the subfield.
+        byte[] actual = new byte[data.length];
+        try (GZIPInputStream in = new GZIPInputStream(new FileInputStream(testOutFile))) {
+            int off = 0;
+            int len;
+            while ((len = in.read(actual, off, actual.length - off)) > 0) {
+                off += len;
+            }
+            assertEquals(-1, in.read());
+        }
+        assertTrue(Arrays.equals(data, actual));
+        try (DictZipReader reader = new DictZipReader(testOutFile.toPath())) {
+            for (int i = 0; i < reader.getChunkCount(); i++) {
+                ByteBuffer chunk = reader.readChunk(i);
+                assertEquals(ByteBuffer.wrap(data, i * 512, chunk.remaining()), chunk);
+            }
+        }
+    }
+
     /**
      * Stub for DictZipOutputStream, for test.
      */
@@ -0,0 +1,252 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test of DictZipReader.
+ * @author Hiroshi Miura
+ */
+public class DictZipReaderTest {
+
+    private final Path dataFile = Paths.get(this.getClass().getResource("/test.dict.dz").getFile());
+    private final Path expectedFile = Paths.get(this.getClass().getResource("/test.dict.expected").getFile());
+
+    /**
+     * Test trailer values.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testTrailer() throws Exception {
+        try (DictZipReader reader = new DictZipReader(dataFile)) {
+            assertEquals(383783, reader.getLength());
+            assertEquals(136856, reader.getCompLength());
+            assertEquals(7, reader.getChunkCount());
+            assertEquals(58315, reader.getChunkDataLength(0));
+            assertEquals(383783 - 58315 * 6, reader.getChunkDataLength(6));
+        }
+    }
+
+    /**
+     * Test transfer ranges across chunks.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testTransferTo() throws Exception {
+        byte[] expected = Files.readAllBytes(expectedFile);
+        long[][] ranges = {{0, expected.length}, {58310, 10}, {100, 58315 * 5}, {383700, 1000}, {0, 0}};
+        try (DictZipReader reader = new DictZipReader(dataFile)) {
+            for (long[] range : ranges) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                try (WritableByteChannel channel = Channels.newChannel(out)) {
+                    long n = reader.transferTo(range[0], range[1], channel);
+                    int end = (int) Math.min(expected.length, range[0] + range[1]);
+                    assertEquals(end - range[0], n);
+                    assertTrue(Arrays.equals(Arrays.copyOfRange(expected, (int) range[0], end), out.toByteArray()));
+                }
+            }
+            assertEquals(0, reader.transferTo(expected.length, 10, Channels.newChannel(new ByteArrayOutputStream())));
+        }
+    }
+
+    /**
+     * Test concurrent misses on the same chunk are decoded once.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testSingleFlight() throws Exception {
+        byte[] expected = Files.readAllBytes(expectedFile);
+        int threads = 8;
+        CountDownLatch misses = new CountDownLatch(threads);
+        AtomicInteger puts = new AtomicInteger();
+        DictZipChunkCache cache = new DictZipChunkCache() {
+            @Override
+            public boolean get(final long fileId, final int index, final ByteBuffer dst) {
+                misses.countDown();
+                try {
+                    misses.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return false;
+            }
+
+            @Override
+            public void put(final long fileId, final int index, final ByteBuffer data) {
+                puts.incrementAndGet();
+                // keep the decode in flight until all other threads join it.
+                long deadline = System.currentTimeMillis() + 10000;
+                while (DictZipReader.getFlightWaiters(fileId, index) < threads - 1
+                        && System.currentTimeMillis() < deadline) {
+                    Thread.yield();
+                }
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (DictZipReader reader = new DictZipReader(dataFile)) {
+            reader.setChunkCache(cache);
+            List<Future<ByteBuffer>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> reader.readChunk(3)));
+            }
+            int start = (int) reader.getChunkStart(3);
+            byte[] part = Arrays.copyOfRange(expected, start, start + reader.getChunkDataLength(3));
+            for (Future<ByteBuffer> result : results) {
+                assertArrayEquals(part, result.get().array());
+            }
+            assertEquals(1, puts.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Test concurrent reads of chunk ranges decode each chunk once.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testSingleFlightChunks() throws Exception {
+        byte[] expected = Files.readAllBytes(expectedFile);
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(threads);
+        OffHeapChunkCache delegate = new OffHeapChunkCache(1024 * 1024);
+        AtomicInteger puts = new AtomicInteger();
+        DictZipChunkCache cache = new DictZipChunkCache() {
+            @Override
+            public boolean get(final long fileId, final int index, final ByteBuffer dst) {
+                if (start.getCount() > 0) {
+                    start.countDown();
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return delegate.get(fileId, index, dst);
+            }
+
+            @Override
+            public void put(final long fileId, final int index, final ByteBuffer data) {
+                puts.incrementAndGet();
+                delegate.put(fileId, index, data);
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (DictZipReader reader = new DictZipReader(dataFile)) {
+            reader.setChunkCache(cache);
+            int count = reader.getChunkCount();
+            List<Future<ByteBuffer>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> reader.readChunks(0, count)));
+            }
+            for (Future<ByteBuffer> result : results) {
+                assertArrayEquals(expected, result.get().array());
+            }
+            assertEquals(count, puts.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Test consecutive chunks are read with one read per run.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testReadChunks() throws Exception {
+        byte[] expected = Files.readAllBytes(expectedFile);
+        AtomicInteger reads = new AtomicInteger();
+        FileChannelStorage base = FileChannelStorage.open(dataFile);
+        DictZipStorage storage = new DictZipStorage() {
+            @Override
+            public long size() throws IOException {
+                return base.size();
+            }
+
+            @Override
+            public int read(final long position, final ByteBuffer dst) throws IOException {
+                reads.incrementAndGet();
+                return base.read(position, dst);
+            }
+
+            @Override
+            public void close() throws IOException {
+                base.close();
+            }
+        };
+        try (DictZipReader reader = new DictZipReader(storage)) {
+            int start = (int) reader.getChunkStart(1);
+            reads.set(0);
+            ByteBuffer data = reader.readChunks(1, 4);
+            assertEquals(1, reads.get());
+            assertArrayEquals(Arrays.copyOfRange(expected, start, start + 4 * reader.getHeader().getChunkLength()),
+                    data.array());
+            // a cached chunk splits the run.
+            OffHeapChunkCache cache = new OffHeapChunkCache(1024 * 1024);
+            reader.setChunkCache(cache);
+            reader.readChunk(3);
+            reads.set(0);
+            int last = reader.getChunkCount() - 1;
+            data = reader.readChunks(0, last + 1);
+            assertEquals(2, reads.get());
+            assertArrayEquals(expected, data.array());
+            assertEquals(last + 1, cache.getChunkCount());
+        }
+    }
+
+    /**
+     * Test storage is closed when it is not a dictzip file.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testCloseOnCorrupt() throws Exception {
+        AtomicInteger closed = new AtomicInteger();
+        ByteArrayStorage base = new ByteArrayStorage(new byte[] {0x1f, (byte) 0x8b, 8, 0, 0, 0});
+        DictZipStorage storage = new DictZipStorage() {
+            @Override
+            public long size() {
+                return base.size();
+            }
+
+            @Override
+            public int read(final long position, final ByteBuffer dst) throws IOException {
+                return base.read(position, dst);
+            }
+
+            @Override
+            public void close() {
+                closed.incrementAndGet();
+            }
+        };
+        assertThrows(IOException.class, () -> new DictZipReader(storage));
+        assertEquals(1, closed.get());
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test of DictZipRecordSpliterator.
+ * @author Hiroshi Miura
+ */
+public class DictZipRecordSpliteratorTest {
+
+    static Path createDictZip(final Path dir, final byte[] data, final int chunkLength) throws IOException {
+        Path path = dir.resolve("records" + chunkLength + ".dict.dz");
+        try (DictZipOutputStream dout = new DictZipOutputStream(
+                new RandomAccessOutputStream(new RandomAccessFile(path.toFile(), "rw")),
+                chunkLength, data.length)) {
+            dout.write(data, 0, data.length);
+        }
+        return path;
+    }
+
+    private static String sampleText() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            sb.append("entry ").append(i).append(" \u3042\u3044\u3046 caf\u00e9");
+            for (int j = 0; j < i % 7; j++) {
+                sb.append(" \u6f22\u5b57");
+            }
+            sb.append(i % 3 == 0 ? "\r\n" : "\n");
+            if (i % 50 == 0) {
+                sb.append('\n');
+            }
+        }
+        sb.append("last line without terminator");
+        return sb.toString();
+    }
+
+    /**
+     * Test lines across chunk boundaries with multibyte characters.
+     * @param tempDir JUnit5 temporary directory.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testLines(@TempDir final Path tempDir) throws Exception {
+        String text = sampleText();
+        byte[] data = text.getBytes(StandardCharsets.UTF_8);
+        Path path = createDictZip(tempDir, data, 37);
+        List<String> expected = Arrays.stream(text.split("\n", -1))
+                .map(l -> l.endsWith("\r") ? l.substring(0, l.length() - 1) : l)
+                .collect(Collectors.toList());
+        List<DictZipRecord> actual;
+        try (Stream<DictZipRecord> lines = DictZipFiles.lines(path, StandardCharsets.UTF_8)) {
+            assertTrue(lines.isParallel());
+            actual = lines.collect(Collectors.toList());
+        }
+        assertEquals(expected, actual.stream().map(DictZipRecord::getText).collect(Collectors.toList()));
+        for (DictZipRecord record : actual) {
+            byte[] bytes = record.getText().getBytes(StandardCharsets.UTF_8);
+            assertEquals(bytes.length, record.getLength());
+            assertTrue(Arrays.equals(bytes, Arrays.copyOfRange(data, (int) record.getOffset(),
+                    (int) record.getOffset() + bytes.length)));
+        }
+    }
+
+    /**
+     * Test records separated by multibyte delimiter which straddles chunks.
+     * @param tempDir JUnit5 temporary directory.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testRecords(@TempDir final Path tempDir) throws Exception {
+        String text = sampleText();
+        byte[] data = text.getBytes(StandardCharsets.UTF_8);
+        byte[] delimiter = "\u3046 ".getBytes(StandardCharsets.UTF_8);
+        List<String> expected = new ArrayList<>(Arrays.asList(text.split("\u3046 ", -1)));
+        for (int chunkLength : new int[] {5, 64, 58315}) {
+            Path path = createDictZip(tempDir, data, chunkLength);
+            try (Stream<DictZipRecord> records = DictZipFiles.records(path, delimiter, StandardCharsets.UTF_8)) {
+                assertEquals(expected, records.map(DictZipRecord::getText).collect(Collectors.toList()));
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test of DictZipStorage implementations.
+ * @author Hiroshi Miura
+ */
+public class DictZipStorageTest {
+
+    private final Path dataFile = Paths.get(this.getClass().getResource("/test.dict.dz").getFile());
+    private final Path expectedFile = Paths.get(this.getClass().getResource("/test.dict.expected").getFile());
+
+    private DictZipStorage[] storages() throws Exception {
+        byte[] data = Files.readAllBytes(dataFile);
+        byte[] padded = new byte[data.length + 20];
+        System.arraycopy(data, 0, padded, 10, data.length);
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+        direct.put(data).flip();
+        return new DictZipStorage[] {
+                FileChannelStorage.open(dataFile),
+                MappedStorage.open(dataFile),
+                new ByteArrayStorage(data),
+                new ByteArrayStorage(padded, 10, data.length),
+                new ByteBufferStorage(direct),
+                PinnedStorage.load(dataFile, true),
+                DirectIOStorage.open(dataFile, 8192),
+        };
+    }
+
+    /**
+     * Test input stream read and seek on each storage.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testInputStream() throws Exception {
+        byte[] expected = Files.readAllBytes(expectedFile);
+        for (DictZipStorage storage : storages()) {
+            try (DictZipInputStream din = new DictZipInputStream(storage)) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buf = new byte[4096];
+                int n;
+                while ((n = din.read(buf, 0, buf.length)) > 0) {
+                    out.write(buf, 0, n);
+                }
+                assertArrayEquals(expected, out.toByteArray());
+                din.seek(200000);
+                byte[] part = new byte[100];
+                din.readFully(part);
+                assertArrayEquals(Arrays.copyOfRange(expected, 200000, 200100), part);
+            }
+        }
+    }
+
+    /**
+     * Test positional reader on each storage.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testReader() throws Exception {
+        byte[] expected = Files.readAllBytes(expectedFile);
+        for (DictZipStorage storage : storages()) {
+            assertEquals(Files.size(dataFile), storage.size());
+            try (DictZipReader reader = new DictZipReader(storage)) {
+                assertEquals(expected.length, reader.getLength());
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                reader.transferTo(58310, 100000, Channels.newChannel(out));
+                assertArrayEquals(Arrays.copyOfRange(expected, 58310, 158310), out.toByteArray());
+            }
+        }
+    }
+
+    /**
+     * Test footprint and close of pinned storage.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testPinned() throws Exception {
+        PinnedStorage storage = PinnedStorage.load(new ByteArrayStorage(Files.readAllBytes(dataFile)), false);
+        assertEquals(Files.size(dataFile), storage.getFootprint());
+        storage.touch();
+        storage.close();
+        assertEquals(0, storage.getFootprint());
+        assertThrows(IOException.class, () -> storage.read(0, ByteBuffer.allocate(1)));
+    }
+
+    /**
+     * Test statistics of direct I/O storage and check with it.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testDirectIO() throws Exception {
+        byte[] data = Files.readAllBytes(dataFile);
+        try (DirectIOStorage storage = DirectIOStorage.open(dataFile)) {
+            ByteBuffer buf = ByteBuffer.allocate(data.length);
+            storage.readFully(0, buf);
+            assertArrayEquals(data, buf.array());
+            assertEquals(1, storage.getReadCount());
+            assertEquals(data.length, storage.getReadBytes());
+            assertEquals(storage.isDirect() ? data.length : 0, storage.getBypassedBytes());
+            assertEquals(-1, storage.read(data.length, ByteBuffer.allocate(1)));
+        }
+        assertTrue(DictZipFiles.checkDictZipFile(dataFile, true));
+    }
+}
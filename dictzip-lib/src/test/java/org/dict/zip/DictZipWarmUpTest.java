@@ -0,0 +1,134 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test of access profile and warm-up.
+ * @author Hiroshi Miura
+ */
+public class DictZipWarmUpTest {
+
+    private final Path dataFile = Paths.get(this.getClass().getResource("/test.dict.dz").getFile());
+
+    /**
+     * Test record, store and replay of a profile.
+     * @param tempDir temporary directory.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testRecordAndReplay(@TempDir final Path tempDir) throws Exception {
+        Path profileFile = tempDir.resolve("hot.dzap");
+        long fileId;
+        try (DictZipReader reader = new DictZipReader(dataFile)) {
+            fileId = reader.getFileId();
+            RecordingChunkCache recorder = new RecordingChunkCache(new OffHeapChunkCache(4 * 1024 * 1024));
+            reader.setChunkCache(recorder);
+            for (int i = 0; i < 3; i++) {
+                reader.readChunk(5);
+            }
+            reader.readChunk(2);
+            reader.readChunk(2);
+            reader.readChunk(0);
+            DictZipAccessProfile profile = recorder.snapshot(2);
+            assertEquals(2, profile.size());
+            assertEquals(5, profile.getIndex(0));
+            assertEquals(2, profile.getIndex(1));
+            assertEquals(fileId, profile.getFileId(0));
+            // counts are halved, so chunk 0 is forgotten.
+            DictZipAccessProfile aged = recorder.snapshot(10);
+            assertEquals(2, aged.size());
+            aged.write(profileFile);
+        }
+        DictZipAccessProfile profile = DictZipAccessProfile.read(profileFile);
+        assertEquals(2, profile.size());
+        assertEquals(5, profile.getIndex(0));
+
+        OffHeapChunkCache cache = new OffHeapChunkCache(4 * 1024 * 1024);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (DictZipReader reader = new DictZipReader(dataFile)) {
+            reader.setChunkCache(cache);
+            DictZipWarmUp warmUp = DictZipWarmUp.start(profile, Collections.singletonList(reader), executor,
+                    2, 1000);
+            warmUp.getFuture().get(10, TimeUnit.SECONDS);
+            assertTrue(warmUp.isDone());
+            assertEquals(2, warmUp.getTotal());
+            assertEquals(2, warmUp.getCompleted());
+            assertEquals(0, warmUp.getSkipped());
+            assertEquals(0, warmUp.getFailed());
+            assertEquals(1.0, warmUp.getProgress());
+            assertEquals(2, cache.getChunkCount());
+            ByteBuffer dst = ByteBuffer.allocate(reader.getHeader().getChunkLength());
+            assertTrue(cache.get(fileId, 5, dst));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Test entries of unknown files are skipped.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testSkip() throws Exception {
+        DictZipAccessProfile profile = new DictZipAccessProfile(new long[] {1, 2}, new int[] {0, 1});
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (DictZipReader reader = new DictZipReader(dataFile)) {
+            DictZipWarmUp warmUp = DictZipWarmUp.start(profile, Collections.singletonList(reader), executor,
+                    1, 0);
+            warmUp.getFuture().get(10, TimeUnit.SECONDS);
+            assertEquals(2, warmUp.getSkipped());
+            assertEquals(0, warmUp.getCompleted());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Test scheduled snapshots continue after a failure.
+     * @param tempDir temporary directory.
+     * @throws Exception when interrupted.
+     */
+    @Test
+    public void testSnapshotFailure(@TempDir final Path tempDir) throws Exception {
+        RecordingChunkCache recorder = new RecordingChunkCache(new OffHeapChunkCache(1024 * 1024));
+        recorder.get(1, 0, ByteBuffer.allocate(10));
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        try {
+            ScheduledFuture<?> future = recorder.scheduleSnapshots(executor, tempDir.resolve("none/hot.dzap"), 10,
+                    10, TimeUnit.MILLISECONDS);
+            long deadline = System.currentTimeMillis() + 10000;
+            while (recorder.getSnapshotFailureCount() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(recorder.getSnapshotFailureCount() >= 2);
+            assertTrue(recorder.getLastSnapshotError() instanceof IOException);
+            assertFalse(future.isDone());
+            future.cancel(false);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
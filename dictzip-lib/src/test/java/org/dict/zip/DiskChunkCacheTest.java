@@ -0,0 +1,125 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test of DiskChunkCache and TieredChunkCache.
+ * @author Hiroshi Miura
+ */
+public class DiskChunkCacheTest {
+
+    private final Path dataFile = Paths.get(this.getClass().getResource("/test.dict.dz").getFile());
+    private final Path expectedFile = Paths.get(this.getClass().getResource("/test.dict.expected").getFile());
+
+    /**
+     * Test entries survive reopen and corrupt slot is ignored.
+     * @param tempDir JUnit5 temporary directory.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testPersistence(@TempDir final Path tempDir) throws Exception {
+        Path path = tempDir.resolve("chunks.cache");
+        byte[] data = new byte[1000];
+        Arrays.fill(data, (byte) 7);
+        try (DiskChunkCache cache = DiskChunkCache.open(path, 16 * 1024, 1024)) {
+            assertEquals(16 * 1024, cache.getCapacity());
+            cache.put(1, 0, ByteBuffer.wrap(data));
+            cache.put(1, 1, ByteBuffer.wrap(data, 0, 500));
+        }
+        try (DiskChunkCache cache = DiskChunkCache.open(path, 16 * 1024, 1024)) {
+            ByteBuffer dst = ByteBuffer.allocate(1024);
+            assertTrue(cache.get(1, 0, dst));
+            assertEquals(1000, dst.position());
+            assertArrayEquals(data, Arrays.copyOf(dst.array(), 1000));
+            dst.clear();
+            assertTrue(cache.get(1, 1, dst));
+            assertEquals(500, dst.position());
+            assertFalse(cache.get(2, 0, ByteBuffer.allocate(1024)));
+        }
+        // corrupt data of all slots.
+        try (RandomAccessFile raf = new RandomAccessFile(path.toFile(), "rw")) {
+            for (long pos = 64 + 32; pos < raf.length(); pos += 1024 + 32) {
+                raf.seek(pos + 10);
+                raf.write(0);
+            }
+        }
+        try (DiskChunkCache cache = DiskChunkCache.open(path, 16 * 1024, 1024)) {
+            assertFalse(cache.get(1, 0, ByteBuffer.allocate(1024)));
+            assertEquals(1, cache.getMissCount());
+        }
+        // other capacity recreates cache.
+        try (DiskChunkCache cache = DiskChunkCache.open(path, 32 * 1024, 1024)) {
+            assertFalse(cache.get(1, 1, ByteBuffer.allocate(1024)));
+        }
+    }
+
+    /**
+     * Test replacement in a set.
+     * @param tempDir JUnit5 temporary directory.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testReplacement(@TempDir final Path tempDir) throws Exception {
+        try (DiskChunkCache cache = DiskChunkCache.open(tempDir.resolve("chunks.cache"), 4 * 1024, 1024)) {
+            for (int i = 0; i < 10; i++) {
+                cache.put(1, i, ByteBuffer.allocate(100));
+            }
+            int hits = 0;
+            for (int i = 0; i < 10; i++) {
+                if (cache.get(1, i, ByteBuffer.allocate(100))) {
+                    hits++;
+                }
+            }
+            assertEquals(4, hits);
+            assertTrue(cache.get(1, 9, ByteBuffer.allocate(100)));
+        }
+    }
+
+    /**
+     * Test reader with memory and disk tiers over restart.
+     * @param tempDir JUnit5 temporary directory.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testTiered(@TempDir final Path tempDir) throws Exception {
+        byte[] expected = Files.readAllBytes(expectedFile);
+        Path path = tempDir.resolve("chunks.cache");
+        for (int n = 0; n < 2; n++) {
+            OffHeapChunkCache memory = new OffHeapChunkCache(1024 * 1024);
+            try (DiskChunkCache disk = DiskChunkCache.open(path, 1024 * 1024);
+                 DictZipReader reader = new DictZipReader(dataFile)) {
+                reader.setChunkCache(new TieredChunkCache(memory, disk));
+                for (int pass = 0; pass < 2; pass++) {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    reader.transferTo(0, expected.length, Channels.newChannel(out));
+                    assertArrayEquals(expected, out.toByteArray());
+                }
+                assertEquals(7, memory.getHitCount());
+                assertEquals(7, disk.getHitCount() + disk.getMissCount());
+                assertEquals(7 * n, disk.getHitCount());
+            }
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test of HttpRangeStorage with local HTTP server.
+ * @author Hiroshi Miura
+ */
+public class HttpRangeStorageTest {
+
+    private final Path dataFile = Paths.get(this.getClass().getResource("/test.dict.dz").getFile());
+    private final Path expectedFile = Paths.get(this.getClass().getResource("/test.dict.expected").getFile());
+    private final byte[] data;
+    private volatile String etag = "\"v1\"";
+
+    public HttpRangeStorageTest() throws IOException {
+        data = Files.readAllBytes(dataFile);
+    }
+
+    private HttpServer startServer() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/test.dict.dz", this::serveRange);
+        server.createContext("/stall.dict.dz", exchange -> {
+            try {
+                Thread.sleep(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+        });
+        server.createContext("/overrun.dict.dz", exchange -> {
+            // claims a range far beyond the requested end.
+            exchange.getResponseHeaders().add("Content-Range", "bytes 0-4294967296/4294967297");
+            exchange.sendResponseHeaders(206, -1);
+            exchange.close();
+        });
+        server.createContext("/norange.dict.dz", exchange -> {
+            exchange.sendResponseHeaders(200, data.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(data);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private void serveRange(final HttpExchange exchange) throws IOException {
+        String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+        exchange.getResponseHeaders().add("ETag", etag);
+        if (ifRange != null && !ifRange.equals(etag)) {
+            exchange.sendResponseHeaders(200, data.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(data);
+            }
+            return;
+        }
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        String[] values = range.substring("bytes=".length()).split("-");
+        int start = Integer.parseInt(values[0]);
+        int end = Math.min(data.length - 1, Integer.parseInt(values[1]));
+        exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + end + "/" + data.length);
+        exchange.sendResponseHeaders(206, end - start + 1);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(data, start, end - start + 1);
+        }
+    }
+
+    private static URL url(final HttpServer server, final String name) throws Exception {
+        return new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/" + name);
+    }
+
+    /**
+     * Test read through range requests with coalescing and cache.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testReader() throws Exception {
+        HttpServer server = startServer();
+        try {
+            byte[] expected = Files.readAllBytes(expectedFile);
+            HttpRangeStorage storage = new HttpRangeStorage(url(server, "test.dict.dz"), 1024 * 1024, 4);
+            assertEquals(data.length, storage.size());
+            try (DictZipReader reader = new DictZipReader(storage)) {
+                // prefix and trailer
+                assertEquals(2, storage.getRequestCount());
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                reader.transferTo(0, expected.length, Channels.newChannel(out));
+                assertArrayEquals(expected, out.toByteArray());
+                // 3 chunks are in prefix of 64KB, and rest 4 chunks are fetched in a request.
+                assertEquals(3, storage.getRequestCount());
+                assertTrue(storage.getFetchedBytes() <= data.length + 65536);
+                assertEquals(data.length, storage.getCachedBytes());
+                assertArrayEquals(Arrays.copyOfRange(expected, 58315 * 5, 58315 * 6), reader.readChunk(5).array());
+                assertEquals(3, storage.getRequestCount());
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Test small cache and partial reads of storage.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testSmallCache() throws Exception {
+        HttpServer server = startServer();
+        try {
+            try (HttpRangeStorage storage = new HttpRangeStorage(url(server, "test.dict.dz"), 70000, 4)) {
+                ByteBuffer buf = ByteBuffer.allocate(100000);
+                storage.readFully(30000, buf);
+                assertArrayEquals(Arrays.copyOfRange(data, 30000, 130000), buf.array());
+                assertTrue(storage.getCachedBytes() <= 70000);
+                assertEquals(-1, storage.read(data.length, ByteBuffer.allocate(1)));
+            }
+            HttpRangeStorage uncached = new HttpRangeStorage(url(server, "test.dict.dz"), 0, 1);
+            try (DictZipInputStream din = new DictZipInputStream(uncached)) {
+                byte[] expected = Files.readAllBytes(expectedFile);
+                din.seek(200000);
+                byte[] part = new byte[1000];
+                din.readFully(part);
+                assertArrayEquals(Arrays.copyOfRange(expected, 200000, 201000), part);
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Test server without range support.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testNoRange() throws Exception {
+        HttpServer server = startServer();
+        try {
+            assertThrows(IOException.class, () -> new HttpRangeStorage(url(server, "norange.dict.dz")));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Test replaced remote file is detected with If-Range.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testChanged() throws Exception {
+        HttpServer server = startServer();
+        try {
+            try (HttpRangeStorage storage = new HttpRangeStorage(url(server, "test.dict.dz"), 1024 * 1024, 1)) {
+                ByteBuffer buf = ByteBuffer.allocate(100);
+                storage.readFully(70000, buf);
+                etag = "\"v2\"";
+                assertThrows(IOException.class, () -> storage.readFully(120000, ByteBuffer.allocate(100)));
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Test read timeout on stalled server.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testTimeout() throws Exception {
+        HttpServer server = startServer();
+        try {
+            long begin = System.nanoTime();
+            assertThrows(IOException.class, () -> new HttpRangeStorage(url(server, "stall.dict.dz"), 0, 1,
+                    1000, 200));
+            assertTrue(System.nanoTime() - begin < 1500_000_000L);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Test response with content range beyond request is rejected.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testOverrun() throws Exception {
+        HttpServer server = startServer();
+        try {
+            IOException e = assertThrows(IOException.class,
+                    () -> new HttpRangeStorage(url(server, "overrun.dict.dz"), 0, 1));
+            assertEquals("Unexpected content range.", e.getMessage());
+        } finally {
+            server.stop(0);
+        }
+    }
+}
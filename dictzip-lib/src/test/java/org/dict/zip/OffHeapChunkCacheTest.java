@@ -0,0 +1,103 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Test of OffHeapChunkCache.
+ * @author Hiroshi Miura
+ */
+public class OffHeapChunkCacheTest {
+
+    private final Path dataFile = Paths.get(this.getClass().getResource("/test.dict.dz").getFile());
+    private final Path expectedFile = Paths.get(this.getClass().getResource("/test.dict.expected").getFile());
+
+    /**
+     * Test put, get and eviction.
+     */
+    @Test
+    public void testEviction() {
+        OffHeapChunkCache cache = new OffHeapChunkCache(16 * 1024, 1024);
+        assertEquals(16 * 1024, cache.getCapacity());
+        for (int i = 0; i < 100; i++) {
+            byte[] data = new byte[1000];
+            Arrays.fill(data, (byte) i);
+            cache.put(1, i, ByteBuffer.wrap(data));
+        }
+        assertEquals(16, cache.getChunkCount());
+        int hits = 0;
+        for (int i = 0; i < 100; i++) {
+            ByteBuffer dst = ByteBuffer.allocate(1000);
+            if (cache.get(1, i, dst)) {
+                hits++;
+                assertFalse(dst.hasRemaining());
+                assertEquals((byte) i, dst.get(999));
+            }
+        }
+        assertEquals(16, hits);
+        assertEquals(16, cache.getHitCount());
+        assertEquals(84, cache.getMissCount());
+        cache.put(1, 200, ByteBuffer.allocate(1025));
+        assertFalse(cache.get(1, 200, ByteBuffer.allocate(1025)));
+        cache.clear();
+        assertEquals(0, cache.getChunkCount());
+    }
+
+    /**
+     * Test sharing chunks between reader and input stream.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testShared() throws Exception {
+        byte[] expected = Files.readAllBytes(expectedFile);
+        OffHeapChunkCache cache = new OffHeapChunkCache(4 * 1024 * 1024);
+        try (DictZipReader reader = new DictZipReader(dataFile)) {
+            reader.setChunkCache(cache);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            reader.transferTo(0, expected.length, Channels.newChannel(out));
+            assertArrayEquals(expected, out.toByteArray());
+            assertEquals(7, cache.getChunkCount());
+            assertEquals(0, cache.getHitCount());
+        }
+        try (DictZipInputStream din = DictZipFiles.newDictZipInputStream(dataFile)) {
+            din.setChunkCache(cache);
+            din.seek(58310);
+            byte[] part = new byte[100];
+            din.readFully(part);
+            assertArrayEquals(Arrays.copyOfRange(expected, 58310, 58410), part);
+            assertEquals(2, cache.getHitCount());
+            din.seek(0);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[5000];
+            int n;
+            while ((n = din.read(buf, 0, buf.length)) > 0) {
+                out.write(buf, 0, n);
+            }
+            assertArrayEquals(expected, out.toByteArray());
+            assertEquals(9, cache.getHitCount());
+            din.setChunkCache(null);
+            din.seek(300000);
+            din.readFully(part);
+            assertArrayEquals(Arrays.copyOfRange(expected, 300000, 300100), part);
+            assertEquals(7, cache.getMissCount());
+        }
+    }
+}
@@ -12,6 +12,10 @@ package org.dict.zip;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -202,4 +206,46 @@ public class RandomAccessInputStreamTest {
         }
         assertEquals(136856, pos);
     }
+
+    /**
+     * Test of adaptive read-ahead.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testReadAhead() throws Exception {
+        byte[] expected = Files.readAllBytes(Paths.get(dataFile));
+        try (RandomAccessInputStream instance = new RandomAccessInputStream(dataFile, "r")) {
+            instance.setReadAhead(1024 * 1024);
+            byte[] result = new byte[expected.length];
+            instance.readFully(result);
+            assertArrayEquals(expected, result);
+            // 4K, 8K, 16K, 32K, 64K and rest.
+            assertEquals(6, instance.getFillCount());
+            assertEquals(5, instance.getSequentialFillCount());
+            assertEquals(expected.length, instance.getFilledBytes());
+            assertEquals(128 * 1024, instance.getWindow());
+            instance.seek(10000);
+            assertEquals(expected[10000] & 0xff, instance.read());
+            assertEquals(4096, instance.getWindow());
+        }
+    }
+
+    /**
+     * Test of read-ahead aligned to chunks.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testReadAheadChunks() throws Exception {
+        byte[] expected = Files.readAllBytes(Paths.get(
+                this.getClass().getResource("/test.dict.expected").getFile()));
+        RandomAccessInputStream rain = new RandomAccessInputStream(dataFile, "r");
+        rain.setReadAhead(1024 * 1024);
+        try (DictZipInputStream din = new DictZipInputStream(rain)) {
+            byte[] result = new byte[expected.length];
+            din.readFully(result);
+            assertArrayEquals(expected, result);
+            assertTrue(rain.getSequentialFillCount() > 0);
+            assertTrue(rain.getFillCount() < 20);
+        }
+    }
 }
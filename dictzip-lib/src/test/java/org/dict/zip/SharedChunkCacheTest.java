@@ -0,0 +1,171 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test of SharedChunkCache.
+ * <p>
+ *     Two mappings of the same file in a process stand for two processes.
+ * </p>
+ * @author Hiroshi Miura
+ */
+public class SharedChunkCacheTest {
+
+    private final Path dataFile = Paths.get(this.getClass().getResource("/test.dict.dz").getFile());
+    private final Path expectedFile = Paths.get(this.getClass().getResource("/test.dict.expected").getFile());
+
+    /**
+     * Test chunks decoded through a mapping are read through other mapping.
+     * @param tempDir JUnit5 temporary directory.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testShared(@TempDir final Path tempDir) throws Exception {
+        byte[] expected = Files.readAllBytes(expectedFile);
+        Path path = tempDir.resolve("shared.cache");
+        try (SharedChunkCache first = SharedChunkCache.open(path, 1024 * 1024);
+             SharedChunkCache second = SharedChunkCache.open(path, 1024 * 1024)) {
+            try (DictZipReader reader = new DictZipReader(dataFile)) {
+                reader.setChunkCache(first);
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                reader.transferTo(0, expected.length, Channels.newChannel(out));
+                assertArrayEquals(expected, out.toByteArray());
+                assertEquals(7, first.getMissCount());
+            }
+            try (DictZipReader reader = new DictZipReader(dataFile)) {
+                reader.setChunkCache(second);
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                reader.transferTo(0, expected.length, Channels.newChannel(out));
+                assertArrayEquals(expected, out.toByteArray());
+                assertEquals(7, second.getHitCount());
+                assertEquals(0, second.getMissCount());
+            }
+        }
+        assertThrows(IOException.class, () -> SharedChunkCache.open(path, 2 * 1024 * 1024));
+    }
+
+    /**
+     * Test concurrent writers and readers never see torn data.
+     * @param tempDir JUnit5 temporary directory.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testConcurrent(@TempDir final Path tempDir) throws Exception {
+        Path path = tempDir.resolve("shared.cache");
+        try (SharedChunkCache first = SharedChunkCache.open(path, 16 * 1024, 1024);
+             SharedChunkCache second = SharedChunkCache.open(path, 16 * 1024, 1024)) {
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                SharedChunkCache cache = t % 2 == 0 ? first : second;
+                futures.add(executor.submit(() -> {
+                    int hits = 0;
+                    ByteBuffer dst = ByteBuffer.allocate(1024);
+                    for (int n = 0; n < 20000; n++) {
+                        int index = n % 40;
+                        dst.clear();
+                        if (cache.get(1, index, dst)) {
+                            assertEquals(index * 10, dst.position());
+                            for (int i = 0; i < dst.position(); i++) {
+                                assertEquals((byte) index, dst.get(i));
+                            }
+                            hits++;
+                        } else {
+                            byte[] data = new byte[index * 10];
+                            Arrays.fill(data, (byte) index);
+                            cache.put(1, index, ByteBuffer.wrap(data));
+                        }
+                    }
+                    return hits;
+                }));
+            }
+            int hits = 0;
+            for (Future<Integer> f : futures) {
+                hits += f.get();
+            }
+            executor.shutdown();
+            assertTrue(hits > 0);
+        }
+    }
+
+    /**
+     * Test fresh claims are kept, stale claims are taken over, and torn slots are detected.
+     * @param tempDir JUnit5 temporary directory.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testClaims(@TempDir final Path tempDir) throws Exception {
+        Path path = tempDir.resolve("shared.cache");
+        // one set of 4 slots, each with 64 bytes header and 1024 bytes data after 64 bytes file header.
+        long slot0 = 64;
+        long slot1 = 64 + 1088;
+        byte[] data = new byte[100];
+        Arrays.fill(data, (byte) 1);
+        try (SharedChunkCache cache = SharedChunkCache.open(path, 4096, 1024);
+             FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long now = System.currentTimeMillis();
+            long fresh = now << 22 | 1;
+            writeLong(channel, slot0, fresh);
+            cache.put(1, 0, ByteBuffer.wrap(data));
+            assertEquals(fresh, readLong(channel, slot0));
+            assertTrue(cache.get(1, 0, ByteBuffer.allocate(1024)));
+
+            long stale = (now - 20000) << 22 | 1;
+            writeLong(channel, slot0, stale);
+            cache.put(1, 1, ByteBuffer.wrap(data));
+            assertEquals(0, readLong(channel, slot0) & 1);
+            assertTrue(cache.get(1, 1, ByteBuffer.allocate(1024)));
+
+            // data changed after publish, as by a writer which lost its claim.
+            channel.write(ByteBuffer.wrap(new byte[] {2}), slot1 + 64 + 50);
+            ByteBuffer dst = ByteBuffer.allocate(1024);
+            assertFalse(cache.get(1, 0, dst));
+            assertEquals(0, dst.position());
+        }
+    }
+
+    private static void writeLong(final FileChannel channel, final long position, final long value)
+            throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(8).order(ByteOrder.nativeOrder());
+        buf.putLong(value).flip();
+        channel.write(buf, position);
+    }
+
+    private static long readLong(final FileChannel channel, final long position) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(8).order(ByteOrder.nativeOrder());
+        channel.read(buf, position);
+        buf.flip();
+        return buf.getLong();
+    }
+}
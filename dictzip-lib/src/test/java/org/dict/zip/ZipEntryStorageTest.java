@@ -0,0 +1,126 @@
+/*
+ * DictZip library.
+ *
+ * Copyright (C) 2022 Hiroshi Miura
+ *
+ * SPDX-License-Identifier: GPL-2.0-or-later WITH Classpath-exception-2.0
+ */
+package org.dict.zip;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test of ZipEntryStorage.
+ * @author Hiroshi Miura
+ */
+public class ZipEntryStorageTest {
+
+    private final Path dataFile = Paths.get(this.getClass().getResource("/test.dict.dz").getFile());
+    private final Path expectedFile = Paths.get(this.getClass().getResource("/test.dict.expected").getFile());
+
+    private Path createJar(final Path tempDir) throws Exception {
+        byte[] data = Files.readAllBytes(dataFile);
+        Path jar = tempDir.resolve("dict.jar");
+        try (OutputStream os = Files.newOutputStream(jar); ZipOutputStream zos = new ZipOutputStream(os)) {
+            zos.setComment("test archive");
+            zos.putNextEntry(new ZipEntry("readme.txt"));
+            zos.write("deflated entry".getBytes("US-ASCII"));
+            zos.closeEntry();
+            ZipEntry entry = new ZipEntry("dict/test.dict.dz");
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(data.length);
+            entry.setCompressedSize(data.length);
+            CRC32 crc = new CRC32();
+            crc.update(data);
+            entry.setCrc(crc.getValue());
+            entry.setExtra(new byte[] {(byte) 0xfe, (byte) 0xca, 4, 0, 1, 2, 3, 4});
+            zos.putNextEntry(entry);
+            zos.write(data);
+            zos.closeEntry();
+            ZipEntry special = new ZipEntry("dict/c++ 1.dict.dz");
+            special.setMethod(ZipEntry.STORED);
+            special.setSize(data.length);
+            special.setCompressedSize(data.length);
+            special.setCrc(crc.getValue());
+            zos.putNextEntry(special);
+            zos.write(data);
+            zos.closeEntry();
+            zos.putNextEntry(new ZipEntry("dict/deflated.dict.dz"));
+            zos.write(data);
+            zos.closeEntry();
+        }
+        return jar;
+    }
+
+    private void assertDictZip(final DictZipStorage storage) throws Exception {
+        byte[] expected = Files.readAllBytes(expectedFile);
+        try (DictZipInputStream din = new DictZipInputStream(storage)) {
+            din.seek(300000);
+            byte[] part = new byte[2000];
+            din.readFully(part);
+            assertArrayEquals(Arrays.copyOfRange(expected, 300000, 302000), part);
+            din.seek(0);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = din.read(buf, 0, buf.length)) > 0) {
+                out.write(buf, 0, n);
+            }
+            assertArrayEquals(expected, out.toByteArray());
+        }
+    }
+
+    /**
+     * Test read of stored entry in archive.
+     * @param tempDir JUnit5 temporary directory.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testOpenEntry(@TempDir final Path tempDir) throws Exception {
+        Path jar = createJar(tempDir);
+        ZipEntryStorage storage = ZipEntryStorage.open(jar, "dict/test.dict.dz");
+        assertEquals("dict/test.dict.dz", storage.getEntryName());
+        assertEquals(Files.size(dataFile), storage.size());
+        assertDictZip(storage);
+        assertThrows(ZipException.class, () -> ZipEntryStorage.open(jar, "dict/deflated.dict.dz"));
+        assertThrows(ZipException.class, () -> ZipEntryStorage.open(jar, "dict/none.dict.dz"));
+        assertThrows(ZipException.class, () -> ZipEntryStorage.open(dataFile, "dict/test.dict.dz"));
+    }
+
+    /**
+     * Test read of class path resource.
+     * @param tempDir JUnit5 temporary directory.
+     * @throws Exception when i/o error.
+     */
+    @Test
+    public void testOpenResource(@TempDir final Path tempDir) throws Exception {
+        Path jar = createJar(tempDir);
+        try (URLClassLoader loader = new URLClassLoader(new URL[] {jar.toUri().toURL()}, null)) {
+            URL resource = loader.getResource("dict/test.dict.dz");
+            assertEquals("jar", resource.getProtocol());
+            assertDictZip(ZipEntryStorage.open(resource));
+            // '+' is not decoded to space.
+            resource = loader.getResource("dict/c++ 1.dict.dz");
+            assertDictZip(ZipEntryStorage.open(resource));
+        }
+        assertDictZip(ZipEntryStorage.open(dataFile.toUri().toURL()));
+    }
+}